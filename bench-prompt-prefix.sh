@@ -0,0 +1,90 @@
+#!/bin/bash
+
+# Benchmark de evaluación de prompts en Ollama: compara el formato anterior
+# (instrucciones y mensaje mezclados en un solo prompt) con el actual
+# (instrucciones fijas como "system" + solo el texto nuevo como prompt).
+# Las familias se intercalan como en una conversación real.
+#
+# Uso: ./bench-prompt-prefix.sh [rondas]
+# Variables: OLLAMA_URL (default http://localhost:11434), OLLAMA_MODEL (default mixtral:8x7b)
+# Requiere: curl, jq
+
+OLLAMA_URL="${OLLAMA_URL:-http://localhost:11434}"
+MODEL="${OLLAMA_MODEL:-mixtral:8x7b}"
+ROUNDS="${1:-5}"
+
+if ! command -v jq &> /dev/null; then
+  echo "Este script necesita jq"
+  exit 1
+fi
+
+HUMANIZE_SYSTEM="Tu rol: Asistente virtual de una empresa de instalaciones y mantenimiento (aire acondicionado, calderas, electricidad, etc.). Sé útil, breve y profesional. Parafrasea para el usuario la instrucción del sistema que recibas."
+CLASSIFY_SYSTEM="Analiza el mensaje del usuario y clasifica su intención respecto al tipo de cliente.
+
+Categorías posibles:
+- EXISTENTE: El usuario quiere usar un cliente que ya existe en la base de datos (ej: \"es uno que ya tenemos\", \"buscar cliente\", \"existente\").
+- MANUAL: El usuario quiere cargar un cliente nuevo o manual (ej: \"es nuevo\", \"no lo tengo\", \"manual\", \"particular\", \"consumidor final\").
+- DESCONOCIDO: No queda claro qué quiere el usuario.
+
+Responde ÚNICAMENTE con una de las palabras clave: EXISTENTE, MANUAL, o DESCONOCIDO."
+PARSE_SYSTEM="Analiza el texto del usuario y extrae la descripción del ítem y el monto TOTAL expresado en dinero.
+Si hay cálculos matemáticos implícitos (ej: \"2 unidades de 500\"), calculá el total (1000).
+Si no hay monto explícito, asumí 0.
+
+Responde ÚNICAMENTE con un JSON válido con este formato:
+{
+  \"description\": \"Texto descriptivo limpio\",
+  \"amount\": 123.45
+}"
+
+INSTRUCTIONS=(
+  "Preguntá de forma casual si quiere agregar materiales a la cotización. Debe responder sí o no."
+  "Preguntá de forma amigable cuál es el monto de mano de obra para este trabajo."
+  "Confirmá que la cotización fue creada exitosamente."
+)
+MESSAGES=("es uno que ya tenemos" "es un cliente nuevo" "no sé, fijate vos")
+ITEMS=("cable de 2mm unos 1500" "dos termostatos a 800 cada uno" "caño de cobre por 3200")
+
+# Imprime "<prompt_eval_count> <prompt_eval_duration_ns>"
+generate() {
+  local system="$1" prompt="$2"
+  jq -n --arg model "$MODEL" --arg system "$system" --arg prompt "$prompt" \
+    '{model: $model, prompt: $prompt, stream: false, options: {num_predict: 1}}
+     + (if $system == "" then {} else {system: $system} end)' |
+    curl -s -X POST "$OLLAMA_URL/api/generate" -H "Content-Type: application/json" -d @- |
+    jq -r '"\(.prompt_eval_count // 0) \(.prompt_eval_duration // 0)"'
+}
+
+run() {
+  local layout="$1" tokens=0 nanos=0 calls=0 result i
+  for ((round = 0; round < ROUNDS; round++)); do
+    i=$((round % 3))
+    for family in humanize classify parse; do
+      if [ "$layout" = "anterior" ]; then
+        case $family in
+          humanize) result=$(generate "" "$HUMANIZE_SYSTEM ${INSTRUCTIONS[$i]}") ;;
+          classify) result=$(generate "" "Analiza el siguiente mensaje del usuario. Mensaje: \"${MESSAGES[$i]}\"
+$CLASSIFY_SYSTEM") ;;
+          parse) result=$(generate "" "Texto: \"${ITEMS[$i]}\"
+$PARSE_SYSTEM") ;;
+        esac
+      else
+        case $family in
+          humanize) result=$(generate "$HUMANIZE_SYSTEM" "${INSTRUCTIONS[$i]}") ;;
+          classify) result=$(generate "$CLASSIFY_SYSTEM" "Mensaje: \"${MESSAGES[$i]}\"") ;;
+          parse) result=$(generate "$PARSE_SYSTEM" "Texto: \"${ITEMS[$i]}\"") ;;
+        esac
+      fi
+      tokens=$((tokens + ${result% *}))
+      nanos=$((nanos + ${result#* }))
+      calls=$((calls + 1))
+    done
+  done
+  echo "$layout: $calls llamadas, prompt_eval promedio $((tokens / calls)) tokens / $((nanos / calls / 1000000)) ms"
+}
+
+echo "Modelo: $MODEL ($OLLAMA_URL), $ROUNDS rondas"
+# Una llamada descartada para que la carga del modelo no cuente
+generate "" "hola" > /dev/null
+run anterior
+run actual
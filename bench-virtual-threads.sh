@@ -0,0 +1,42 @@
+#!/bin/bash
+
+# Prueba de carga del /assistant: N conversaciones concurrentes (saludo, tipo de
+# cliente, búsqueda por nombre) contra una instancia ya levantada.
+# Para comparar hilos de plataforma vs virtuales, correrlo contra el mismo build
+# (mvn -Pjdk21 package) arrancado con VIRTUAL_THREADS=false y con VIRTUAL_THREADS=true.
+#
+# Uso: ./bench-virtual-threads.sh [conversaciones] [concurrencia]
+# Variables: BASE_URL (default http://localhost:8080)
+# Requiere: curl
+
+BASE_URL="${BASE_URL:-http://localhost:8080}"
+SESSIONS="${1:-200}"
+CONCURRENCY="${2:-100}"
+RESULTS=$(mktemp)
+trap 'rm -f "$RESULTS"' EXIT
+
+conversation() {
+  local session="bench-$1-$RANDOM"
+  for message in "hola" "es un cliente existente" "juan"; do
+    curl -s -o /dev/null -w "%{http_code} %{time_total}\n" -X POST "$BASE_URL/assistant" \
+      -H "Content-Type: application/json" \
+      -d "{\"sessionId\":\"$session\",\"message\":\"$message\"}"
+  done
+}
+export -f conversation
+export BASE_URL
+
+echo "Conversaciones: $SESSIONS, concurrencia: $CONCURRENCY, destino: $BASE_URL"
+START=$(date +%s.%N)
+seq 1 "$SESSIONS" | xargs -P "$CONCURRENCY" -I{} bash -c 'conversation {}' > "$RESULTS"
+END=$(date +%s.%N)
+
+sort -k2 -n "$RESULTS" | awk -v start="$START" -v end="$END" '
+  { latency[NR] = $2; if ($1 != "200") errors++ }
+  END {
+    elapsed = end - start
+    printf "Requests: %d (%d con error) en %.1f s -> %.1f req/s\n", NR, errors, elapsed, NR / elapsed
+    printf "Latencia p50 %.0f ms, p95 %.0f ms, p99 %.0f ms, max %.0f ms\n",
+      latency[int(NR * 0.50)] * 1000, latency[int(NR * 0.95)] * 1000,
+      latency[int(NR * 0.99)] * 1000, latency[NR] * 1000
+  }'
@@ -0,0 +1,74 @@
+package com.ri.orchestrator.config;
+
+import com.ri.orchestrator.service.TurnDeadline;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class AsyncConfig {
+  @Bean
+  public AsyncTaskExecutor assistantStreamExecutor(
+      Environment environment,
+      @Value("${assistant.stream.pool-size:16}") int poolSize,
+      @Value("${assistant.stream.queue-capacity:64}") int queueCapacity) {
+    if (Threading.VIRTUAL.isActive(environment)) {
+      return virtualExecutor("assistant-stream-");
+    }
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setThreadNamePrefix("assistant-stream-");
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setQueueCapacity(queueCapacity);
+    return executor;
+  }
+
+  @Bean
+  public AsyncTaskExecutor turnExecutor(
+      Environment environment,
+      @Value("${assistant.turn.pool-size:16}") int poolSize,
+      @Value("${assistant.turn.queue-capacity:64}") int queueCapacity) {
+    if (Threading.VIRTUAL.isActive(environment)) {
+      SimpleAsyncTaskExecutor executor = virtualExecutor("assistant-turn-");
+      executor.setTaskDecorator(TurnDeadline::propagate);
+      return executor;
+    }
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setThreadNamePrefix("assistant-turn-");
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setQueueCapacity(queueCapacity);
+    // Los pasos paralelos siguen sujetos al presupuesto del turno que los lanzó
+    executor.setTaskDecorator(TurnDeadline::propagate);
+    // Con la cola llena el paso corre en el hilo del turno: se pierde paralelismo, no el pedido
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    return executor;
+  }
+
+  @Bean
+  public ThreadPoolTaskExecutor paraphraseRefillExecutor(
+      @Value("${assistant.paraphrase-cache.refill-threads:1}") int threads,
+      @Value("${assistant.paraphrase-cache.refill-queue-capacity:32}") int queueCapacity) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setThreadNamePrefix("paraphrase-refill-");
+    executor.setCorePoolSize(threads);
+    executor.setMaxPoolSize(threads);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setDaemon(true);
+    return executor;
+  }
+
+  // Con spring.threads.virtual.enabled en JDK 21+ cada tarea tiene su hilo virtual: no hace falta
+  // acotar el pool porque la concurrencia hacia Ollama ya la limita el bulkhead
+  private SimpleAsyncTaskExecutor virtualExecutor(String threadNamePrefix) {
+    SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+    executor.setVirtualThreads(true);
+    return executor;
+  }
+}
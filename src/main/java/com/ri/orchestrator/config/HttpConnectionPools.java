@@ -0,0 +1,105 @@
+package com.ri.orchestrator.config;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.ManagedHttpClientConnectionFactory;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+@Component
+public class HttpConnectionPools implements DisposableBean {
+  private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(3);
+
+  private final HttpPoolProperties properties;
+  private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+  public HttpConnectionPools(HttpPoolProperties properties) {
+    this.properties = properties;
+  }
+
+  // Un HttpClient con keep-alive por servicio: las conexiones se reutilizan entre requests
+  public CloseableHttpClient client(String name) {
+    return pools.computeIfAbsent(name, key -> new Pool(properties.pool(key))).client;
+  }
+
+  public Duration leaseTimeout(String name) {
+    return properties.pool(name).getLeaseTimeout();
+  }
+
+  public Map<String, Object> describe() {
+    Map<String, Object> result = new LinkedHashMap<>();
+    pools.forEach((name, pool) -> result.put(name, pool.describe()));
+    return result;
+  }
+
+  @Override
+  public void destroy() throws IOException {
+    for (Pool pool : pools.values()) {
+      pool.client.close();
+    }
+  }
+
+  private static final class Pool {
+    private final PoolingHttpClientConnectionManager manager;
+    private final CloseableHttpClient client;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+
+    Pool(HttpPoolProperties.Pool settings) {
+      this.manager = PoolingHttpClientConnectionManagerBuilder.create()
+          .setConnectionFactory(socket -> {
+            connections.incrementAndGet();
+            return ManagedHttpClientConnectionFactory.INSTANCE.createConnection(socket);
+          })
+          .setMaxConnTotal(settings.getMaxTotal())
+          .setMaxConnPerRoute(settings.getMaxPerRoute())
+          .setDefaultConnectionConfig(ConnectionConfig.custom()
+              .setConnectTimeout(Timeout.of(CONNECT_TIMEOUT))
+              // Una conexión que estuvo ociosa se verifica antes de usarla (el servidor pudo cerrarla)
+              .setValidateAfterInactivity(TimeValue.of(settings.getValidateAfterInactivity()))
+              .build())
+          .build();
+      this.client = HttpClients.custom()
+          .setConnectionManager(manager)
+          .addRequestInterceptorFirst((request, entity, context) -> requests.incrementAndGet())
+          .evictIdleConnections(TimeValue.of(settings.getIdleEviction()))
+          .evictExpiredConnections()
+          .build();
+    }
+
+    Map<String, Object> describe() {
+      PoolStats total = manager.getTotalStats();
+      Map<String, Object> entry = new LinkedHashMap<>();
+      entry.put("leased", total.getLeased());
+      entry.put("available", total.getAvailable());
+      entry.put("pending", total.getPending());
+      entry.put("max", total.getMax());
+      long sent = requests.get();
+      long opened = connections.get();
+      entry.put("requests", sent);
+      entry.put("connections_created", opened);
+      entry.put("reuse_ratio", sent == 0 ? 0.0 : Math.round(1000.0 * (sent - opened) / sent) / 1000.0);
+      Map<String, Object> routes = new LinkedHashMap<>();
+      for (HttpRoute route : manager.getRoutes()) {
+        PoolStats stats = manager.getStats(route);
+        routes.put(route.getTargetHost().toURI(),
+            Map.of("leased", stats.getLeased(), "available", stats.getAvailable(), "pending", stats.getPending()));
+      }
+      entry.put("routes", routes);
+      return entry;
+    }
+  }
+}
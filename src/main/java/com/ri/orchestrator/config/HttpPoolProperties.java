@@ -0,0 +1,74 @@
+package com.ri.orchestrator.config;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "http")
+public class HttpPoolProperties {
+  // Un pool de conexiones por servicio externo (ollama, aws, jobs)
+  private Map<String, Pool> pools = new LinkedHashMap<>();
+
+  public Map<String, Pool> getPools() {
+    return pools;
+  }
+
+  public void setPools(Map<String, Pool> pools) {
+    this.pools = pools;
+  }
+
+  public Pool pool(String name) {
+    return pools.computeIfAbsent(name, key -> new Pool());
+  }
+
+  public static class Pool {
+    private int maxTotal = 20;
+    private int maxPerRoute = 10;
+    // Cuánto espera un request por una conexión libre cuando el pool está lleno
+    private Duration leaseTimeout = Duration.ofSeconds(5);
+    // Las conexiones ociosas se cierran antes de que el servidor las corte del otro lado
+    private Duration idleEviction = Duration.ofSeconds(30);
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+
+    public int getMaxTotal() {
+      return maxTotal;
+    }
+
+    public void setMaxTotal(int maxTotal) {
+      this.maxTotal = maxTotal;
+    }
+
+    public int getMaxPerRoute() {
+      return maxPerRoute;
+    }
+
+    public void setMaxPerRoute(int maxPerRoute) {
+      this.maxPerRoute = maxPerRoute;
+    }
+
+    public Duration getLeaseTimeout() {
+      return leaseTimeout;
+    }
+
+    public void setLeaseTimeout(Duration leaseTimeout) {
+      this.leaseTimeout = leaseTimeout;
+    }
+
+    public Duration getIdleEviction() {
+      return idleEviction;
+    }
+
+    public void setIdleEviction(Duration idleEviction) {
+      this.idleEviction = idleEviction;
+    }
+
+    public Duration getValidateAfterInactivity() {
+      return validateAfterInactivity;
+    }
+
+    public void setValidateAfterInactivity(Duration validateAfterInactivity) {
+      this.validateAfterInactivity = validateAfterInactivity;
+    }
+  }
+}
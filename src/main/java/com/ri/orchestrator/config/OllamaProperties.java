@@ -0,0 +1,146 @@
+package com.ri.orchestrator.config;
+
+import com.ri.orchestrator.service.OllamaTask;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "ollama")
+public class OllamaProperties {
+  private Map<OllamaTask, TaskSettings> tasks = new EnumMap<>(OllamaTask.class);
+  // Instancias de Ollama entre las que se reparten los llamados; vacío = solo ollama.base-url
+  private List<String> nodes = new ArrayList<>();
+
+  public Map<OllamaTask, TaskSettings> getTasks() {
+    return tasks;
+  }
+
+  public void setTasks(Map<OllamaTask, TaskSettings> tasks) {
+    this.tasks = tasks;
+  }
+
+  public List<String> getNodes() {
+    return nodes;
+  }
+
+  public void setNodes(List<String> nodes) {
+    this.nodes = nodes;
+  }
+
+  public TaskSettings task(OllamaTask task) {
+    return tasks.computeIfAbsent(task, key -> new TaskSettings());
+  }
+
+  public static class TaskSettings {
+    private boolean coalesce = true;
+    // Modelo para esta tarea (vacío = ollama.model) y respaldo si el principal está saturado
+    private String model;
+    private String fallbackModel;
+    // "json" fuerza JSON libre; "schema" usa el JSON Schema que pase el llamador (o JSON si no pasa ninguno)
+    private String format;
+    private Integer numPredict;
+    private Double temperature;
+    private Integer numCtx;
+    private List<String> stop;
+    private String keepAlive;
+
+    public boolean isCoalesce() {
+      return coalesce;
+    }
+
+    public void setCoalesce(boolean coalesce) {
+      this.coalesce = coalesce;
+    }
+
+    public String getModel() {
+      return model;
+    }
+
+    public void setModel(String model) {
+      this.model = model;
+    }
+
+    public String getFallbackModel() {
+      return fallbackModel;
+    }
+
+    public void setFallbackModel(String fallbackModel) {
+      this.fallbackModel = fallbackModel;
+    }
+
+    public String getFormat() {
+      return format;
+    }
+
+    public void setFormat(String format) {
+      this.format = format;
+    }
+
+    public Integer getNumPredict() {
+      return numPredict;
+    }
+
+    public void setNumPredict(Integer numPredict) {
+      this.numPredict = numPredict;
+    }
+
+    public Double getTemperature() {
+      return temperature;
+    }
+
+    public void setTemperature(Double temperature) {
+      this.temperature = temperature;
+    }
+
+    public Integer getNumCtx() {
+      return numCtx;
+    }
+
+    public void setNumCtx(Integer numCtx) {
+      this.numCtx = numCtx;
+    }
+
+    public List<String> getStop() {
+      return stop;
+    }
+
+    public void setStop(List<String> stop) {
+      this.stop = stop;
+    }
+
+    public String getKeepAlive() {
+      return keepAlive;
+    }
+
+    public void setKeepAlive(String keepAlive) {
+      this.keepAlive = keepAlive;
+    }
+
+    public Object format(Map<String, Object> schema) {
+      if ("schema".equalsIgnoreCase(format)) {
+        return schema != null ? schema : "json";
+      }
+      return format == null || format.isBlank() ? null : format;
+    }
+
+    public Map<String, Object> options() {
+      Map<String, Object> options = new LinkedHashMap<>();
+      if (numPredict != null) {
+        options.put("num_predict", numPredict);
+      }
+      if (temperature != null) {
+        options.put("temperature", temperature);
+      }
+      if (numCtx != null) {
+        options.put("num_ctx", numCtx);
+      }
+      if (stop != null && !stop.isEmpty()) {
+        options.put("stop", stop);
+      }
+      return options.isEmpty() ? null : options;
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package com.ri.orchestrator.config;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+public class PerCallTimeoutRequestFactory extends HttpComponentsClientHttpRequestFactory {
+  private static final ThreadLocal<Duration> READ_TIMEOUT = new ThreadLocal<>();
+
+  private Duration readTimeout;
+
+  public PerCallTimeoutRequestFactory(HttpClient httpClient) {
+    super(httpClient);
+  }
+
+  // El timeout vale solo para los requests hechos por este hilo dentro del call y
+  // nunca amplía los timeouts configurados en la fábrica, solo los acorta
+  public static <T> T withReadTimeout(Duration timeout, Supplier<T> call) {
+    Duration previous = READ_TIMEOUT.get();
+    READ_TIMEOUT.set(timeout);
+    try {
+      return call.get();
+    } finally {
+      if (previous == null) {
+        READ_TIMEOUT.remove();
+      } else {
+        READ_TIMEOUT.set(previous);
+      }
+    }
+  }
+
+  // RestTemplateBuilder.setReadTimeout llega acá: en HttpClient 5 es el response timeout de cada request
+  public void setReadTimeout(Duration readTimeout) {
+    this.readTimeout = readTimeout;
+  }
+
+  @Override
+  protected RequestConfig createRequestConfig(Object client) {
+    RequestConfig config = super.createRequestConfig(client);
+    RequestConfig.Builder builder = config == null ? RequestConfig.custom() : RequestConfig.copy(config);
+    Duration override = READ_TIMEOUT.get();
+    Timeout response = shorter(readTimeout == null ? null : Timeout.of(readTimeout), override);
+    if (response != null) {
+      builder.setResponseTimeout(response);
+    }
+    if (override != null) {
+      // Esperar una conexión libre del pool también consume el presupuesto
+      builder.setConnectionRequestTimeout(
+          shorter(config == null ? null : config.getConnectionRequestTimeout(), override));
+    }
+    return builder.build();
+  }
+
+  private static Timeout shorter(Timeout configured, Duration override) {
+    if (override == null) {
+      return configured;
+    }
+    Timeout limit = Timeout.ofMilliseconds(Math.max(1, override.toMillis()));
+    // 0 (o sin configurar) significa "sin límite"
+    if (configured == null || configured.toMilliseconds() <= 0) {
+      return limit;
+    }
+    return configured.toMilliseconds() <= limit.toMilliseconds() ? configured : limit;
+  }
+}
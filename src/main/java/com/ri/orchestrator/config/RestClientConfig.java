@@ -1,19 +1,41 @@
 package com.ri.orchestrator.config;
 
+import java.net.http.HttpClient;
 import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
 public class RestClientConfig {
   @Bean
-  public RestTemplate restTemplate(RestTemplateBuilder builder) {
-    return builder
-        .setConnectTimeout(Duration.ofSeconds(3))
-        .setReadTimeout(Duration.ofSeconds(60))
+  @Primary
+  public RestTemplate restTemplate(RestTemplateBuilder builder, HttpConnectionPools pools) {
+    return pooled(builder, pools, "aws", Duration.ofSeconds(60));
+  }
+
+  @Bean
+  public RestTemplate jobsRestTemplate(RestTemplateBuilder builder, HttpConnectionPools pools) {
+    return pooled(builder, pools, "jobs", Duration.ofSeconds(60));
+  }
+
+  @Bean
+  public RestTemplate ollamaRestTemplate(RestTemplateBuilder builder, HttpConnectionPools pools,
+                                         @Value("${ollama.timeouts.max:60s}") Duration maxTimeout) {
+    return pooled(builder, pools, "ollama", maxTimeout);
+  }
+
+  // Cliente no bloqueante para las variantes *Async: los requests en vuelo no ocupan un hilo.
+  // Negocia HTTP/2 por ALPN con los backends HTTPS y multiplexa sobre una sola conexión
+  @Bean
+  public HttpClient httpClient() {
+    return HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(3))
+        .version(HttpClient.Version.HTTP_2)
         .build();
   }
 
@@ -21,4 +43,17 @@ public class RestClientConfig {
   public RestClient restClient(RestTemplate restTemplate) {
     return RestClient.builder(restTemplate).build();
   }
+
+  private RestTemplate pooled(RestTemplateBuilder builder, HttpConnectionPools pools, String pool,
+                              Duration readTimeout) {
+    return builder
+        .requestFactory(() -> {
+          PerCallTimeoutRequestFactory factory = new PerCallTimeoutRequestFactory(pools.client(pool));
+          factory.setConnectionRequestTimeout(pools.leaseTimeout(pool));
+          return factory;
+        })
+        .setConnectTimeout(Duration.ofSeconds(3))
+        .setReadTimeout(readTimeout)
+        .build();
+  }
 }
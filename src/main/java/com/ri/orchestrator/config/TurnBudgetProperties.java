@@ -0,0 +1,42 @@
+package com.ri.orchestrator.config;
+
+import com.ri.orchestrator.model.ConversationState;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "assistant.turn-budget")
+public class TurnBudgetProperties {
+  private boolean enabled = true;
+  private Duration perTurn = Duration.ofSeconds(10);
+  private Map<ConversationState, Duration> states = new EnumMap<>(ConversationState.class);
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public Duration getPerTurn() {
+    return perTurn;
+  }
+
+  public void setPerTurn(Duration perTurn) {
+    this.perTurn = perTurn;
+  }
+
+  public Map<ConversationState, Duration> getStates() {
+    return states;
+  }
+
+  public void setStates(Map<ConversationState, Duration> states) {
+    this.states = states;
+  }
+
+  public Duration budgetFor(ConversationState state) {
+    return states.getOrDefault(state, perTurn);
+  }
+}
@@ -1,10 +1,25 @@
 package com.ri.orchestrator.controller;
 
+import com.ri.orchestrator.config.HttpConnectionPools;
 import com.ri.orchestrator.dto.AssistantRequest;
 import com.ri.orchestrator.dto.AssistantResponse;
 import com.ri.orchestrator.service.AssistantService;
+import com.ri.orchestrator.service.AwsBackendClient;
+import com.ri.orchestrator.service.ClientDirectory;
+import com.ri.orchestrator.service.CotizacionOutbox;
+import com.ri.orchestrator.service.OllamaWarmup;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,14 +27,39 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping
 public class AssistantController {
+  private static final Logger log = LoggerFactory.getLogger(AssistantController.class);
+
   private final AssistantService assistantService;
+  private final OllamaWarmup ollamaWarmup;
+  private final HttpConnectionPools httpPools;
+  private final AwsBackendClient awsBackendClient;
+  private final ClientDirectory clientDirectory;
+  private final CotizacionOutbox cotizacionOutbox;
+  private final TaskExecutor streamExecutor;
+  private final long streamTimeoutMs;
 
-  public AssistantController(AssistantService assistantService) {
+  public AssistantController(AssistantService assistantService,
+                             OllamaWarmup ollamaWarmup,
+                             HttpConnectionPools httpPools,
+                             AwsBackendClient awsBackendClient,
+                             ClientDirectory clientDirectory,
+                             CotizacionOutbox cotizacionOutbox,
+                             @Qualifier("assistantStreamExecutor") TaskExecutor streamExecutor,
+                             @Value("${assistant.stream.timeout-ms:120000}") long streamTimeoutMs) {
     this.assistantService = assistantService;
+    this.ollamaWarmup = ollamaWarmup;
+    this.httpPools = httpPools;
+    this.awsBackendClient = awsBackendClient;
+    this.clientDirectory = clientDirectory;
+    this.cotizacionOutbox = cotizacionOutbox;
+    this.streamExecutor = streamExecutor;
+    this.streamTimeoutMs = streamTimeoutMs;
   }
 
   @PostMapping(path = "/assistant", consumes = MediaType.APPLICATION_JSON_VALUE,
@@ -29,8 +69,53 @@ public class AssistantController {
     return ResponseEntity.ok(response);
   }
 
+  @PostMapping(path = "/assistant/stream", consumes = MediaType.APPLICATION_JSON_VALUE,
+      produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter assistantStream(@Valid @RequestBody AssistantRequest request) {
+    SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+    try {
+      streamExecutor.execute(() -> streamTurn(request, emitter));
+    } catch (TaskRejectedException ex) {
+      // Pool y cola de streams llenos: 503 para que el cliente reintente, no un 500
+      log.warn("Assistant stream rejected: stream executor saturated");
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many concurrent streams", ex);
+    }
+    return emitter;
+  }
+
+  private void streamTurn(AssistantRequest request, SseEmitter emitter) {
+    try {
+      AssistantResponse response = assistantService.handleMessage(
+          request.getSessionId(), request.getMessage(), token -> sendToken(emitter, token));
+      emitter.send(SseEmitter.event().name("done").data(response, MediaType.APPLICATION_JSON));
+      emitter.complete();
+    } catch (Exception ex) {
+      log.warn("Assistant stream aborted: {}", ex.getMessage());
+      emitter.completeWithError(ex);
+    }
+  }
+
   @GetMapping(path = "/health", produces = MediaType.APPLICATION_JSON_VALUE)
   public Map<String, String> health() {
     return Map.of("status", "UP");
   }
+
+  @GetMapping(path = "/ready", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Map<String, Object>> ready() {
+    HttpStatus status = ollamaWarmup.isReady() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
+    Map<String, Object> body = new LinkedHashMap<>(ollamaWarmup.describe());
+    body.put("http_pools", httpPools.describe());
+    body.put("aws_cache", awsBackendClient.describeCaches());
+    body.put("client_directory", clientDirectory.describe());
+    body.put("cotizacion_outbox", cotizacionOutbox.describe());
+    return ResponseEntity.status(status).body(body);
+  }
+
+  private void sendToken(SseEmitter emitter, String token) {
+    try {
+      emitter.send(SseEmitter.event().name("token").data(token, MediaType.TEXT_PLAIN));
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
 }
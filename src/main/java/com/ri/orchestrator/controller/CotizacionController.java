@@ -0,0 +1,40 @@
+package com.ri.orchestrator.controller;
+
+import com.ri.orchestrator.service.CotizacionBulkImporter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping
+public class CotizacionController {
+  private static final String NDJSON = "application/x-ndjson";
+  private static final String TEXT_CSV = "text/csv";
+
+  private final CotizacionBulkImporter bulkImporter;
+
+  public CotizacionController(CotizacionBulkImporter bulkImporter) {
+    this.bulkImporter = bulkImporter;
+  }
+
+  // Se lee el cuerpo y se escriben los resultados a la vez, sin juntar el archivo en memoria
+  @PostMapping(path = "/cotizaciones/bulk", consumes = {NDJSON, "application/jsonl", TEXT_CSV},
+      produces = NDJSON)
+  public void bulk(@RequestHeader(value = "Idempotency-Key", required = false) String batchKey,
+                   HttpServletRequest request,
+                   HttpServletResponse response) throws IOException {
+    boolean csv = MediaType.parseMediaType(request.getContentType())
+        .isCompatibleWith(MediaType.parseMediaType(TEXT_CSV));
+    response.setStatus(HttpStatus.OK.value());
+    response.setContentType(NDJSON);
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    bulkImporter.ingest(request.getInputStream(), csv, batchKey, response.getOutputStream());
+  }
+}
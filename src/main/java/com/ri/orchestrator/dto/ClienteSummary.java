@@ -0,0 +1,6 @@
+package com.ri.orchestrator.dto;
+
+import java.util.List;
+
+public record ClienteSummary(String id, String nombre, List<SucursalSummary> sucursales) {
+}
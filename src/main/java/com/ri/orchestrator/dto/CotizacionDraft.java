@@ -0,0 +1,23 @@
+package com.ri.orchestrator.dto;
+
+import java.util.List;
+
+// Una fila de la carga masiva: lo mismo que se junta en una conversación. El cliente va por
+// clienteId o por nombre (cliente); sin ninguno de los dos es un cliente manual con dirección
+public record CotizacionDraft(
+    String clienteId,
+    String cliente,
+    String sucursal,
+    String clienteManual,
+    String direccion,
+    String trabajo,
+    String descripcionTrabajo,
+    Double manoDeObra,
+    List<Item> materiales,
+    List<Item> equipos,
+    List<Item> extras) {
+
+  // Sin monto, la descripción se interpreta como en el chat ("Cable 2mm 1500")
+  public record Item(String descripcion, Double monto) {
+  }
+}
@@ -1,9 +1,17 @@
 package com.ri.orchestrator.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.Map;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class OllamaGenerateRequest {
   private String model;
   private String prompt;
+  private String system;
   private boolean stream;
+  private String keep_alive;
+  private Object format;
+  private Map<String, Object> options;
 
   public OllamaGenerateRequest() {}
 
@@ -29,6 +37,14 @@ public class OllamaGenerateRequest {
     this.prompt = prompt;
   }
 
+  public String getSystem() {
+    return system;
+  }
+
+  public void setSystem(String system) {
+    this.system = system;
+  }
+
   public boolean isStream() {
     return stream;
   }
@@ -36,4 +52,28 @@ public class OllamaGenerateRequest {
   public void setStream(boolean stream) {
     this.stream = stream;
   }
+
+  public String getKeep_alive() {
+    return keep_alive;
+  }
+
+  public void setKeep_alive(String keep_alive) {
+    this.keep_alive = keep_alive;
+  }
+
+  public Object getFormat() {
+    return format;
+  }
+
+  public void setFormat(Object format) {
+    this.format = format;
+  }
+
+  public Map<String, Object> getOptions() {
+    return options;
+  }
+
+  public void setOptions(Map<String, Object> options) {
+    this.options = options;
+  }
 }
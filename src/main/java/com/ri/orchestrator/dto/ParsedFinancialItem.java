@@ -1,4 +1,7 @@
 package com.ri.orchestrator.dto;
 
-public record ParsedFinancialItem(String description, double amount) {
+public record ParsedFinancialItem(String description, double amount, double confidence) {
+  public ParsedFinancialItem(String description, double amount) {
+    this(description, amount, 1.0);
+  }
 }
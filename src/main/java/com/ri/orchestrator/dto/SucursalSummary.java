@@ -0,0 +1,4 @@
+package com.ri.orchestrator.dto;
+
+public record SucursalSummary(String id, String nombre) {
+}
@@ -0,0 +1,22 @@
+package com.ri.orchestrator.dto;
+
+public record TurnInterpretation(
+    String intent,
+    Boolean affirmative,
+    Boolean negative,
+    Boolean finish,
+    String name,
+    String workType,
+    String itemDescription,
+    Double itemAmount) {
+
+  public ParsedFinancialItem item() {
+    if (itemAmount == null) {
+      return null;
+    }
+    String description = itemDescription == null || itemDescription.isBlank()
+        ? "Item desconocido"
+        : itemDescription;
+    return new ParsedFinancialItem(description, itemAmount);
+  }
+}
@@ -8,6 +8,7 @@ import java.util.Base64;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import org.springframework.beans.factory.annotation.Value;
@@ -25,6 +26,7 @@ public class ServiceTokenProvider {
     private final String subject;
     private final List<String> roles;
     private final long ttlSeconds;
+    private final ReentrantLock lock = new ReentrantLock();
     private String cachedToken;
     private long cachedExpEpochSeconds;
 
@@ -45,13 +47,19 @@ public class ServiceTokenProvider {
         this.ttlSeconds = Math.max(ttlSeconds, MIN_TTL_SECONDS);
     }
 
-    public synchronized String getToken() {
-        long now = Instant.now().getEpochSecond();
-        if (cachedToken != null && now < cachedExpEpochSeconds - 30) {
+    // Lock en vez de synchronized: con hilos virtuales (JDK 21) un monitor fija el hilo a su carrier
+    public String getToken() {
+        lock.lock();
+        try {
+            long now = Instant.now().getEpochSecond();
+            if (cachedToken != null && now < cachedExpEpochSeconds - 30) {
+                return cachedToken;
+            }
+            cachedToken = generateToken(now);
             return cachedToken;
+        } finally {
+            lock.unlock();
         }
-        cachedToken = generateToken(now);
-        return cachedToken;
     }
 
     private String generateToken(long now) {
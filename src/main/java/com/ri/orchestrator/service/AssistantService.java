@@ -1,10 +1,16 @@
 package com.ri.orchestrator.service;
 
+import com.ri.orchestrator.config.TurnBudgetProperties;
 import com.ri.orchestrator.dto.AssistantResponse;
+import com.ri.orchestrator.dto.ClienteSummary;
+import com.ri.orchestrator.dto.CotizacionDraft;
 import com.ri.orchestrator.dto.ParsedFinancialItem;
+import com.ri.orchestrator.dto.SucursalSummary;
+import com.ri.orchestrator.dto.TurnInterpretation;
 import com.ri.orchestrator.model.ConversationSession;
 import com.ri.orchestrator.model.ConversationState;
 import java.text.Normalizer;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -12,10 +18,17 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -27,6 +40,7 @@ public class AssistantService {
   private static final String CONTEXT_CLIENTE_NOMBRE = "clienteNombre";
   private static final String CONTEXT_CLIENTE_MANUAL = "clienteManual";
   private static final String CONTEXT_CLIENTE_MATCHES = "clienteMatches";
+  private static final String CONTEXT_SUCURSAL_PREFETCH = "sucursalPrefetch";
   private static final String CONTEXT_SUCURSAL_ID = "sucursalId";
   private static final String CONTEXT_SUCURSALES = "sucursales";
   private static final String CONTEXT_SUCURSAL_NOMBRE = "sucursalNombre";
@@ -45,30 +59,128 @@ public class AssistantService {
   private static final Pattern INTEGER_PATTERN = Pattern.compile("^(\\d+)$");
 
   private static final Map<String, String> TRABAJO_CATALOGO = buildTrabajoCatalog();
+  private static final double IVA = 1.21;
+  private static final String HUMANIZE_SYSTEM =
+      "Tu rol: Asistente virtual de una empresa de instalaciones y mantenimiento (aire acondicionado, calderas, electricidad, etc.). "
+          + "Sé útil, breve y profesional. Parafrasea para el usuario la instrucción del sistema que recibas.";
   private static final Set<String> FINISH_KEYWORDS = Set.of(
       "terminar", "terminamos", "finalizar", "cerrar", "listo", "resumen");
+  // Lo que puede seguir a un "sí" en CONFIRMACION sin que deje de ser un sí ("sí, dale", "si por favor")
+  private static final Set<String> YES_TAIL_WORDS = Set.of(
+      "dale", "por", "favor", "gracias", "claro", "ok", "perfecto", "correcto", "adelante", "de", "una",
+      "esta", "bien", "todo", "confirmo", "confirmar", "confirmado", "mandale", "obvio", "seguro");
+  private static final Set<String> NEGATION_WORDS = Set.of(
+      "no", "nop", "ni", "nunca", "tampoco", "cancelar", "cancelo", "pero", "espera", "todavia");
+  private static final int MAX_YES_TAIL = 3;
 
   private final IntentService intentService;
   private final SmartParserService smartParserService;
   private final OllamaClient ollamaClient;
   private final SessionStore sessionStore;
   private final AwsBackendClient awsBackendClient;
+  private final ClientDirectory clientDirectory;
+  private final CotizacionOutbox cotizacionOutbox;
+  private final ParaphraseCache paraphraseCache;
+  private final ConfirmationClassifier confirmationClassifier;
+  private final WorkTypeMatcher workTypeMatcher;
+  private final TurnBudgetProperties turnBudget;
+  private final TaskExecutor turnExecutor;
+  private final boolean parallelTurns;
+  private final TurnInterpreter turnInterpreter;
+  private final boolean interpreterEnabled;
+  private final boolean prefetchEnabled;
+  private final int prefetchCandidates;
+  private final Duration prefetchTtl;
+  private final ThreadLocal<Consumer<String>> replySink = new ThreadLocal<>();
+  private final ThreadLocal<TurnInput> turnInput = new ThreadLocal<>();
 
   public AssistantService(IntentService intentService,
       SmartParserService smartParserService,
       OllamaClient ollamaClient,
       SessionStore sessionStore,
-      AwsBackendClient awsBackendClient) {
+      AwsBackendClient awsBackendClient,
+      ClientDirectory clientDirectory,
+      CotizacionOutbox cotizacionOutbox,
+      ParaphraseCache paraphraseCache,
+      ConfirmationClassifier confirmationClassifier,
+      WorkTypeMatcher workTypeMatcher,
+      TurnBudgetProperties turnBudget,
+      @Qualifier("turnExecutor") TaskExecutor turnExecutor,
+      @Value("${assistant.turn.parallel:true}") boolean parallelTurns,
+      TurnInterpreter turnInterpreter,
+      @Value("${assistant.interpreter.enabled:true}") boolean interpreterEnabled,
+      @Value("${assistant.sucursal-prefetch.enabled:true}") boolean prefetchEnabled,
+      @Value("${assistant.sucursal-prefetch.max-candidates:5}") int prefetchCandidates,
+      @Value("${assistant.sucursal-prefetch.ttl:PT2M}") Duration prefetchTtl) {
     this.intentService = intentService;
     this.smartParserService = smartParserService;
     this.ollamaClient = ollamaClient;
     this.sessionStore = sessionStore;
     this.awsBackendClient = awsBackendClient;
+    this.clientDirectory = clientDirectory;
+    this.cotizacionOutbox = cotizacionOutbox;
+    this.paraphraseCache = paraphraseCache;
+    this.confirmationClassifier = confirmationClassifier;
+    this.workTypeMatcher = workTypeMatcher;
+    this.turnBudget = turnBudget;
+    this.turnExecutor = turnExecutor;
+    this.parallelTurns = parallelTurns;
+    this.turnInterpreter = turnInterpreter;
+    this.interpreterEnabled = interpreterEnabled;
+    this.prefetchEnabled = prefetchEnabled;
+    this.prefetchCandidates = prefetchCandidates;
+    this.prefetchTtl = prefetchTtl;
+    this.workTypeMatcher.rebuild(TRABAJO_CATALOGO.values());
+    this.turnInterpreter.rebuild(TRABAJO_CATALOGO.values());
   }
 
   public AssistantResponse handleMessage(String sessionId, String message) {
-    String resolvedSessionId = resolveSessionId(sessionId);
-    ConversationSession session = sessionStore.getOrCreate(resolvedSessionId);
+    return handleMessage(sessionId, message, null);
+  }
+
+  public AssistantResponse handleMessage(String sessionId, String message, Consumer<String> onToken) {
+    StringBuilder emitted = new StringBuilder();
+    replySink.set(onToken == null ? null : token -> {
+      emitted.append(token);
+      onToken.accept(token);
+    });
+    try {
+      String resolvedSessionId = resolveSessionId(sessionId);
+      ConversationSession session = sessionStore.getOrCreate(resolvedSessionId);
+      AssistantResponse response;
+      if (!turnBudget.isEnabled()) {
+        response = processMessage(resolvedSessionId, session, message);
+      } else {
+        // Todo lo que llama el turno (IA, backend) comparte este presupuesto
+        TurnDeadline deadline = TurnDeadline.after(turnBudget.budgetFor(session.getState()));
+        response = deadline.call(() -> processMessage(resolvedSessionId, session, message));
+      }
+      if (onToken != null) {
+        emitRemainder(onToken, emitted.toString(), response.getReply_text());
+      }
+      return response;
+    } finally {
+      replySink.remove();
+      turnInput.remove();
+    }
+  }
+
+  // Las respuestas fijas (y lo que no salió por tokens) también llegan como tokens antes del
+  // "done": el cliente ve siempre el mismo texto que trae la respuesta final
+  private void emitRemainder(Consumer<String> onToken, String emitted, String replyText) {
+    if (replyText == null || replyText.length() == emitted.length()) {
+      return;
+    }
+    if (!replyText.startsWith(emitted)) {
+      log.warn("Streamed tokens diverged from the final reply ({} of {} chars streamed)",
+          emitted.length(), replyText.length());
+      return;
+    }
+    onToken.accept(replyText.substring(emitted.length()));
+  }
+
+  private AssistantResponse processMessage(String resolvedSessionId, ConversationSession session, String message) {
+    turnInput.set(new TurnInput(session.getState(), message));
     String replyText = "";
     boolean endSession = false;
 
@@ -76,7 +188,10 @@ public class AssistantService {
       switch (session.getState()) {
         case START:
           changeState(session, ConversationState.CAPTURA_TIPO_CLIENTE);
-          replyText = buildGreeting() + " " + buildAskTipoCliente();
+          String greeting = buildGreeting();
+          // El mismo separador que en replyText, también en los tokens del stream
+          emitReply(" ");
+          replyText = greeting + " " + buildAskTipoCliente();
           break;
         case CAPTURA_TIPO_CLIENTE:
           ClientType clientType = classifyClientType(message);
@@ -98,57 +213,73 @@ public class AssistantService {
           if (clienteNombre.isBlank()) {
             replyText = buildAskClienteExistenteInvalid();
           } else {
-            // Extraer nombre usando IA si la frase es conversacional
-            String extractedName = intentService.extractName(clienteNombre);
-            log.info("Searching AWS users by name: '{}' (extracted from: '{}')", extractedName, clienteNombre);
-            List<Map<String, Object>> matches = awsBackendClient.searchUsersByName(extractedName);
-            if (matches == null) {
-              log.info("AWS user search results: unavailable");
-              replyText = buildAskClienteExistenteUnavailable();
-            } else if (matches.isEmpty()) {
-              log.info("AWS user search results: 0 match(es)");
-              replyText = buildAskClienteExistenteNotFound();
-            } else if (matches.size() == 1) {
-              log.info("AWS user search results: 1 match(es)");
-              Map<String, Object> cliente = matches.get(0);
-              String clienteId = resolveClienteId(cliente);
-              if (clienteId == null) {
-                replyText = buildAskClienteExistenteResolutionError();
+            // Buscar con el texto crudo mientras la IA extrae el nombre; si hay un único
+            // resultado, sus sucursales se piden sin esperar a la extracción
+            CompletableFuture<List<ClienteSummary>> rawSearch = parallelTurns
+                ? clientDirectory.searchAsync(clienteNombre)
+                : fork(() -> clientDirectory.search(clienteNombre));
+            CompletableFuture<List<SucursalSummary>> rawSucursales = parallelTurns
+                ? speculateSucursales(rawSearch)
+                : null;
+            try {
+              // Extraer nombre usando IA si la frase es conversacional
+              String extractedName = extractName(clienteNombre);
+              log.info("Searching AWS users by name: '{}' (extracted from: '{}')", extractedName, clienteNombre);
+              List<ClienteSummary> rawMatches = join(rawSearch);
+              List<ClienteSummary> matches = rawMatches;
+              if (!normalize(extractedName).equals(normalize(clienteNombre))) {
+                matches = clientDirectory.search(extractedName);
+                if ((matches == null || matches.isEmpty()) && rawMatches != null && !rawMatches.isEmpty()) {
+                  matches = rawMatches;
+                }
+              }
+              if (matches == null) {
+                log.info("AWS user search results: unavailable");
+                replyText = buildAskClienteExistenteUnavailable();
+              } else if (matches.isEmpty()) {
+                log.info("AWS user search results: 0 match(es)");
+                replyText = buildAskClienteExistenteNotFound();
+              } else if (matches.size() == 1) {
+                log.info("AWS user search results: 1 match(es)");
+                ClienteSummary cliente = matches.get(0);
+                String clienteId = cliente.id();
+                if (clienteId == null) {
+                  replyText = buildAskClienteExistenteResolutionError();
+                } else {
+                  log.info("AWS cliente seleccionado: id={}, nombre={}", clienteId, resolveClienteDisplayName(cliente));
+                  log.info("AWS cliente payload: {}", cliente);
+                  changeState(session, ConversationState.CAPTURA_SUCURSAL);
+                  List<SucursalSummary> preloaded = matches == rawMatches && rawSucursales != null
+                      ? join(rawSucursales)
+                      : null;
+                  replyText = prepareSucursalCapture(session, clienteId, resolveClienteDisplayName(cliente), preloaded);
+                }
               } else {
-                log.info("AWS cliente seleccionado: id={}, nombre={}", clienteId, resolveClienteDisplayName(cliente));
-                log.info("AWS cliente payload: {}", cliente);
-                changeState(session, ConversationState.CAPTURA_SUCURSAL);
-                replyText = prepareSucursalCapture(session, clienteId, resolveClienteDisplayName(cliente));
+                log.info("AWS user search results: {} match(es)", matches.size());
+                session.getContext().put(CONTEXT_CLIENTE_MATCHES, List.copyOf(matches));
+                startSucursalPrefetch(session, matches);
+                changeState(session, ConversationState.CAPTURA_CLIENTE_EXISTENTE_CONFIRMACION);
+                replyText = buildAskClienteExistenteMultiple(matches);
+              }
+            } finally {
+              // Si el turno no usó la lectura especulativa, se corta el pedido a AWS (si nadie más lo espera)
+              if (rawSucursales != null) {
+                rawSucursales.cancel(true);
               }
-            } else {
-              log.info("AWS user search results: {} match(es)", matches.size());
-              session.getContext().put(CONTEXT_CLIENTE_MATCHES, new ArrayList<>(matches));
-              changeState(session, ConversationState.CAPTURA_CLIENTE_EXISTENTE_CONFIRMACION);
-              replyText = buildAskClienteExistenteMultiple(matches);
             }
           }
           break;
         case CAPTURA_CLIENTE_EXISTENTE_CONFIRMACION:
           Object matchesObj = session.getContext().get(CONTEXT_CLIENTE_MATCHES);
-          if (!(matchesObj instanceof List<?> matchesRaw)) {
+          if (!(matchesObj instanceof List<?>)) {
             changeState(session, ConversationState.CAPTURA_CLIENTE_EXISTENTE_NOMBRE);
             replyText = buildAskClienteExistenteNombre();
             break;
           }
-          List<Map<String, Object>> matches = new ArrayList<>();
-          for (Object item : matchesRaw) {
-            if (item instanceof Map<?, ?> mapItem) {
-              Map<String, Object> casted = new HashMap<>();
-              mapItem.forEach((key, value) -> {
-                if (key instanceof String) {
-                  casted.put((String) key, value);
-                }
-              });
-              matches.add(casted);
-            }
-          }
+          List<ClienteSummary> matches = contextList(matchesObj, ClienteSummary.class);
           if (matches.isEmpty()) {
             session.getContext().remove(CONTEXT_CLIENTE_MATCHES);
+            discardSucursalPrefetch(session);
             changeState(session, ConversationState.CAPTURA_CLIENTE_EXISTENTE_NOMBRE);
             replyText = buildAskClienteExistenteNombre();
             break;
@@ -157,18 +288,20 @@ public class AssistantService {
           if (selection < 1 || selection > matches.size()) {
             replyText = buildAskClienteExistenteConfirmationInvalid(matches.size());
           } else {
-            Map<String, Object> cliente = matches.get(selection - 1);
-            String clienteId = resolveClienteId(cliente);
+            ClienteSummary cliente = matches.get(selection - 1);
+            String clienteId = cliente.id();
             if (clienteId == null) {
               session.getContext().remove(CONTEXT_CLIENTE_MATCHES);
+              discardSucursalPrefetch(session);
               changeState(session, ConversationState.CAPTURA_CLIENTE_EXISTENTE_NOMBRE);
               replyText = buildAskClienteExistenteResolutionError();
             } else {
               log.info("AWS cliente seleccionado: id={}, nombre={}", clienteId, resolveClienteDisplayName(cliente));
               log.info("AWS cliente payload: {}", cliente);
               session.getContext().remove(CONTEXT_CLIENTE_MATCHES);
+              List<SucursalSummary> prefetched = takePrefetchedSucursales(session, clienteId);
               changeState(session, ConversationState.CAPTURA_SUCURSAL);
-              replyText = prepareSucursalCapture(session, clienteId, resolveClienteDisplayName(cliente));
+              replyText = prepareSucursalCapture(session, clienteId, resolveClienteDisplayName(cliente), prefetched);
             }
           }
           break;
@@ -185,10 +318,10 @@ public class AssistantService {
           }
           break;
         case CAPTURA_SUCURSAL:
-          List<Map<String, Object>> sucursales = castToListOfMaps(
-              session.getContext().get(CONTEXT_SUCURSALES));
-          Map<String, Object> sucursalSeleccionada = resolveSucursalSelection(message, sucursales);
-          String sucursalId = resolveSucursalId(sucursalSeleccionada);
+          List<SucursalSummary> sucursales = contextList(
+              session.getContext().get(CONTEXT_SUCURSALES), SucursalSummary.class);
+          SucursalSummary sucursalSeleccionada = resolveSucursalSelection(message, sucursales);
+          String sucursalId = sucursalSeleccionada == null ? null : sucursalSeleccionada.id();
           if (sucursalId == null) {
             replyText = buildAskSucursalInvalid(sucursales);
           } else {
@@ -327,9 +460,15 @@ public class AssistantService {
         case CONFIRMACION:
           if (isConfirmed(message) || isSimpleYes(message)) {
             Map<String, Object> payload = buildCotizacionPayload(session.getContext());
-            awsBackendClient.createCotizacion(payload);
+            // El mensaje de éxito se redacta mientras el backend crea la cotización;
+            // si la creación falla se descarta sin haberse mostrado
+            CompletableFuture<String> successText = fork(() -> withoutReplySink(this::buildSuccess));
+            // Con el outbox la cotización queda en disco y se envía en segundo plano
+            if (!cotizacionOutbox.submit(payload)) {
+              awsBackendClient.createCotizacion(payload);
+            }
             changeState(session, ConversationState.SUCCESS);
-            replyText = buildSuccess();
+            replyText = emitReply(join(successText));
             endSession = true;
           } else {
             replyText = buildConfirmationPrompt();
@@ -370,6 +509,39 @@ public class AssistantService {
     return response;
   }
 
+  public void warmUp() {
+    if (interpreterEnabled) {
+      turnInterpreter.interpret(ConversationState.CAPTURA_TIPO_CLIENTE, "es un cliente existente");
+      turnInterpreter.interpret(ConversationState.CAPTURA_CLIENTE_EXISTENTE_NOMBRE, "creo que es juan");
+      turnInterpreter.interpret(ConversationState.CAPTURA_TRABAJO, "instalacion de aire");
+      turnInterpreter.interpret(ConversationState.CAPTURA_MATERIALES_CONFIRM, "si");
+      turnInterpreter.interpret(ConversationState.CAPTURA_MATERIALES, "Cable 2mm 1500");
+    } else {
+      // Se encolan todas juntas sin ocupar un hilo por llamado
+      CompletableFuture.allOf(
+          intentService.classifyClientTypeAsync("es un cliente existente"),
+          intentService.isAffirmativeAsync("si"),
+          intentService.extractNameAsync("creo que es juan"),
+          intentService.normalizeWorkTypeAsync("instalacion de aire", TRABAJO_CATALOGO.values()),
+          smartParserService.parseFinancialItemAsync("Cable 2mm 1500")).join();
+    }
+    buildGreeting();
+    buildAskTipoCliente();
+    buildAskTrabajo();
+    buildAskManoObra();
+    buildAskMaterialesConfirm();
+    buildAskMaterialesItem();
+    buildAskMaterialesMore();
+    buildAskEquiposConfirm();
+    buildAskEquiposItem();
+    buildAskEquiposMore();
+    buildAskExtrasConfirm();
+    buildAskExtrasItem();
+    buildAskExtrasMore();
+    buildConfirmationPrompt();
+    buildSuccess();
+  }
+
   private String resolveSessionId(String sessionId) {
     if (sessionId == null || sessionId.isBlank()) {
       return UUID.randomUUID().toString();
@@ -392,7 +564,13 @@ public class AssistantService {
     }
 
     // 2️⃣ Usar IA para entender la intención (prioridad natural)
-    String intent = intentService.classifyClientType(message);
+    String intent;
+    if (usesInterpreter()) {
+      TurnInterpretation interpretation = interpretTurn();
+      intent = interpretation != null ? interpretation.intent() : "DESCONOCIDO";
+    } else {
+      intent = intentService.classifyClientType(message);
+    }
     if ("MANUAL".equals(intent)) {
       return ClientType.MANUAL;
     }
@@ -414,36 +592,11 @@ public class AssistantService {
     return null;
   }
 
-  private String resolveClienteId(Map<String, Object> cliente) {
-    if (cliente == null) {
-      return null;
-    }
-    Object id = cliente.get("_id");
-    if (id == null) {
-      id = cliente.get("id");
-    }
-    if (id == null) {
-      return null;
-    }
-    String idText = String.valueOf(id).trim();
-    return idText.isBlank() ? null : idText;
-  }
-
-  private String resolveClienteDisplayName(Map<String, Object> cliente) {
-    if (cliente == null) {
+  private String resolveClienteDisplayName(ClienteSummary cliente) {
+    if (cliente == null || cliente.nombre() == null) {
       return "Cliente sin nombre";
     }
-    Object nombre = cliente.get("nombre");
-    if (nombre == null) {
-      nombre = cliente.get("name");
-    }
-    if (nombre == null) {
-      nombre = cliente.get("razonSocial");
-    }
-    if (nombre == null) {
-      return "Cliente sin nombre";
-    }
-    String display = String.valueOf(nombre).trim();
+    String display = cliente.nombre().trim();
     return display.isBlank() ? "Cliente sin nombre" : display;
   }
 
@@ -463,29 +616,27 @@ public class AssistantService {
     }
   }
 
-  private List<Map<String, Object>> castToListOfMaps(Object raw) {
+  // Las listas del contexto ya son registros inmutables: se leen sin copiarlas
+  @SuppressWarnings("unchecked")
+  private <T> List<T> contextList(Object raw, Class<T> type) {
     if (!(raw instanceof List<?> rawList)) {
       return List.of();
     }
-    List<Map<String, Object>> result = new ArrayList<>();
     for (Object item : rawList) {
-      if (item instanceof Map<?, ?> mapItem) {
-        Map<String, Object> casted = new HashMap<>();
-        mapItem.forEach((key, value) -> {
-          if (key instanceof String) {
-            casted.put((String) key, value);
-          }
-        });
-        result.add(casted);
+      if (!type.isInstance(item)) {
+        return rawList.stream().filter(type::isInstance).map(type::cast).toList();
       }
     }
-    return result;
+    return (List<T>) rawList;
   }
 
-  private String prepareSucursalCapture(ConversationSession session, String clienteId, String clienteNombre) {
+  private String prepareSucursalCapture(ConversationSession session, String clienteId, String clienteNombre,
+      List<SucursalSummary> preloadedSucursales) {
     session.getContext().put(CONTEXT_CLIENTE_ID, clienteId);
     session.getContext().put(CONTEXT_CLIENTE_NOMBRE, clienteNombre);
-    List<Map<String, Object>> sucursales = loadSucursalesForCliente(clienteId);
+    List<SucursalSummary> sucursales = preloadedSucursales != null
+        ? preloadedSucursales
+        : loadSucursalesForCliente(clienteId);
     if (!sucursales.isEmpty()) {
       session.getContext().put(CONTEXT_SUCURSALES, sucursales);
     } else {
@@ -494,20 +645,144 @@ public class AssistantService {
     return buildAskSucursal(sucursales);
   }
 
-  private List<Map<String, Object>> loadSucursalesForCliente(String clienteId) {
+  private <T> CompletableFuture<T> fork(Supplier<T> step) {
+    if (!parallelTurns) {
+      try {
+        return CompletableFuture.completedFuture(step.get());
+      } catch (RuntimeException ex) {
+        return CompletableFuture.failedFuture(ex);
+      }
+    }
+    return CompletableFuture.supplyAsync(step, turnExecutor);
+  }
+
+  private <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException ex) {
+      if (ex.getCause() instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      throw ex;
+    }
+  }
+
+  private <T> T withoutReplySink(Supplier<T> step) {
+    Consumer<String> sink = replySink.get();
+    replySink.remove();
+    try {
+      return step.get();
+    } finally {
+      if (sink != null) {
+        replySink.set(sink);
+      }
+    }
+  }
+
+  private String emitReply(String text) {
+    Consumer<String> sink = replySink.get();
+    if (sink != null && text != null && !text.isEmpty()) {
+      sink.accept(text);
+    }
+    return text;
+  }
+
+  // Mientras el usuario elige de la lista, se piden las sucursales de los primeros candidatos
+  private void startSucursalPrefetch(ConversationSession session, List<ClienteSummary> matches) {
+    discardSucursalPrefetch(session);
+    if (!prefetchEnabled || prefetchCandidates <= 0) {
+      return;
+    }
+    List<String> ids = matches.stream()
+        .limit(prefetchCandidates)
+        .map(ClienteSummary::id)
+        .toList();
+    session.getContext().put(CONTEXT_SUCURSAL_PREFETCH,
+        SucursalPrefetch.start(ids, prefetchTtl, this::prefetchSucursales));
+  }
+
+  private CompletableFuture<List<SucursalSummary>> prefetchSucursales(String clienteId) {
+    ClienteSummary local = clientDirectory.find(clienteId);
+    if (local != null && !local.sucursales().isEmpty()) {
+      return CompletableFuture.completedFuture(local.sucursales());
+    }
+    // La respuesta del turno ya salió: el pedido tiene su propio plazo, no el del turno
+    CompletableFuture<ClienteSummary> cliente =
+        TurnDeadline.after(prefetchTtl).call(() -> awsBackendClient.getUserByIdAsync(clienteId));
+    return Futures.handle(cliente, (found, ex) -> {
+      if (ex != null) {
+        throw Futures.asRuntime(ex);
+      }
+      return found == null ? List.<SucursalSummary>of() : found.sucursales();
+    });
+  }
+
+  private List<SucursalSummary> takePrefetchedSucursales(ConversationSession session, String clienteId) {
+    if (!(session.getContext().remove(CONTEXT_SUCURSAL_PREFETCH) instanceof SucursalPrefetch prefetch)) {
+      return null;
+    }
+    List<SucursalSummary> sucursales = prefetch.take(clienteId, TurnDeadline.cap(prefetchTtl));
+    log.info("Sucursal prefetch for cliente {}: {}", clienteId, sucursales == null ? "miss" : "hit");
+    return sucursales;
+  }
+
+  private void discardSucursalPrefetch(ConversationSession session) {
+    if (session.getContext().remove(CONTEXT_SUCURSAL_PREFETCH) instanceof SucursalPrefetch prefetch) {
+      prefetch.cancel();
+    }
+  }
+
+  // Sucursales del único resultado de la búsqueda cruda, pedidas antes de saber si el turno las usa;
+  // cancelar el futuro corta el pedido a AWS salvo que otro turno también lo espere
+  private CompletableFuture<List<SucursalSummary>> speculateSucursales(
+      CompletableFuture<List<ClienteSummary>> search) {
+    // La continuación corre en el hilo del cliente HTTP: el presupuesto del turno se pasa a mano
+    TurnDeadline deadline = TurnDeadline.current();
+    CompletableFuture<List<SucursalSummary>> result = new CompletableFuture<>();
+    search.whenComplete((found, ex) -> {
+      String foundId = ex == null && found != null && found.size() == 1 ? found.get(0).id() : null;
+      if (foundId == null || result.isDone()) {
+        result.complete(null);
+        return;
+      }
+      ClienteSummary local = clientDirectory.find(foundId);
+      if (local != null && !local.sucursales().isEmpty()) {
+        result.complete(local.sucursales());
+        return;
+      }
+      Supplier<CompletableFuture<ClienteSummary>> lookup = () -> awsBackendClient.getUserByIdAsync(foundId);
+      CompletableFuture<ClienteSummary> cliente = deadline == null ? lookup.get() : deadline.call(lookup);
+      Futures.cancelWith(result, cliente);
+      cliente.whenComplete((loaded, error) -> {
+        if (error != null) {
+          log.warn("AWS sucursales lookup failed: {}", Futures.unwrap(error).getMessage());
+          result.complete(List.of());
+        } else {
+          result.complete(loaded == null ? List.of() : loaded.sucursales());
+        }
+      });
+    });
+    return result;
+  }
+
+  private List<SucursalSummary> loadSucursalesForCliente(String clienteId) {
+    ClienteSummary local = clientDirectory.find(clienteId);
+    if (local != null && !local.sucursales().isEmpty()) {
+      return local.sucursales();
+    }
     try {
-      Map<String, Object> cliente = awsBackendClient.getUserById(clienteId);
-      if (cliente == null || cliente.isEmpty()) {
+      ClienteSummary cliente = awsBackendClient.getUserById(clienteId);
+      if (cliente == null) {
         return List.of();
       }
-      return castToListOfMaps(cliente.get("sucursales"));
+      return cliente.sucursales();
     } catch (Exception ex) {
       log.warn("AWS sucursales lookup failed: {}", ex.getMessage());
       return List.of();
     }
   }
 
-  private Map<String, Object> resolveSucursalSelection(String message, List<Map<String, Object>> sucursales) {
+  private SucursalSummary resolveSucursalSelection(String message, List<SucursalSummary> sucursales) {
     if (sucursales == null || sucursales.isEmpty()) {
       return null;
     }
@@ -519,7 +794,7 @@ public class AssistantService {
     if (normalizedInput.isBlank()) {
       return null;
     }
-    for (Map<String, Object> sucursal : sucursales) {
+    for (SucursalSummary sucursal : sucursales) {
       String nombre = resolveSucursalNombre(sucursal);
       if (nombre.isBlank()) {
         continue;
@@ -532,34 +807,11 @@ public class AssistantService {
     return null;
   }
 
-  private String resolveSucursalId(Map<String, Object> sucursal) {
-    if (sucursal == null) {
-      return null;
-    }
-    Object id = sucursal.get("_id");
-    if (id == null) {
-      id = sucursal.get("id");
-    }
-    if (id == null) {
-      return null;
-    }
-    String value = String.valueOf(id).trim();
-    return value.isBlank() ? null : value;
-  }
-
-  private String resolveSucursalNombre(Map<String, Object> sucursal) {
-    if (sucursal == null) {
-      return "";
-    }
-    Object nombre = sucursal.get("nombre");
-    if (nombre == null) {
-      nombre = sucursal.get("name");
-    }
-    if (nombre == null) {
+  private String resolveSucursalNombre(SucursalSummary sucursal) {
+    if (sucursal == null || sucursal.nombre() == null) {
       return "";
     }
-    String value = String.valueOf(nombre).trim();
-    return value.isBlank() ? "" : value;
+    return sucursal.nombre().trim();
   }
 
   private String resolveTrabajo(String message) {
@@ -567,8 +819,19 @@ public class AssistantService {
       return null;
     }
 
-    // Intentar con IA primero
-    String aiResult = intentService.normalizeWorkType(message, TRABAJO_CATALOGO.values());
+    // Coincidencia local clara: no hace falta la IA
+    WorkTypeMatcher.Match match = workTypeMatcher.match(message);
+    if (match != null && match.confident()) {
+      return match.option();
+    }
+
+    String aiResult;
+    if (usesInterpreter()) {
+      TurnInterpretation interpretation = interpretTurn();
+      aiResult = interpretation != null ? interpretation.workType() : null;
+    } else {
+      aiResult = intentService.normalizeWorkType(message, TRABAJO_CATALOGO.values());
+    }
     if (aiResult != null) {
       return aiResult;
     }
@@ -596,7 +859,14 @@ public class AssistantService {
   }
 
   private ParsedItem parseDescriptionAndAmount(String message) {
-    ParsedFinancialItem item = smartParserService.parseFinancialItem(message);
+    ParsedFinancialItem item;
+    if (usesInterpreter()) {
+      ParsedFinancialItem local = smartParserService.parseLocally(message);
+      TurnInterpretation interpretation = smartParserService.isConfident(local) ? null : interpretTurn();
+      item = interpretation != null && interpretation.item() != null ? interpretation.item() : local;
+    } else {
+      item = smartParserService.parseFinancialItem(message);
+    }
     if (item == null) {
       return null;
     }
@@ -636,7 +906,12 @@ public class AssistantService {
         return true;
       }
     }
-    return false;
+    // Si el ítem no se entiende localmente, la misma interpretación que lo parsea dice si es un cierre
+    if (!usesInterpreter() || smartParserService.isConfident(smartParserService.parseLocally(message))) {
+      return false;
+    }
+    TurnInterpretation interpretation = interpretTurn();
+    return interpretation != null && Boolean.TRUE.equals(interpretation.finish());
   }
 
   private void addAdditionalItem(Map<String, Object> context, String key, ParsedItem item) {
@@ -662,45 +937,96 @@ public class AssistantService {
   }
 
   private boolean isYes(String message) {
-    // Intentar con IA primero
-    boolean aiResult = intentService.isAffirmative(message);
-    if (aiResult)
-      return true;
-
-    // Fallback a lógica simple
-    String normalized = normalize(message);
-    return normalized.equals("si")
-        || normalized.equals("sí")
-        || normalized.startsWith("si ")
-        || normalized.startsWith("sí ")
-        || normalized.contains("claro")
-        || normalized.contains("ok")
-        || normalized.contains("dale")
-        || normalized.contains("tengo")
-        || normalized.contains("hay");
+    ConfirmationClassifier.Verdict verdict = confirmationClassifier.classify(message);
+    if (verdict.confident()) {
+      return verdict.isAffirmative();
+    }
+    // Solo los mensajes ambiguos llegan a la IA
+    if (usesInterpreter()) {
+      TurnInterpretation interpretation = interpretTurn();
+      return interpretation != null && Boolean.TRUE.equals(interpretation.affirmative());
+    }
+    return intentService.isAffirmative(message);
   }
 
   private boolean isNo(String message) {
-    String normalized = normalize(message);
-    return normalized.equals("no")
-        || normalized.startsWith("no ")
-        || normalized.contains("no hay")
-        || normalized.contains("ninguno")
-        || normalized.contains("ninguna");
+    ConfirmationClassifier.Verdict verdict = confirmationClassifier.classify(message);
+    if (verdict.confident() || !usesInterpreter()) {
+      return verdict.isNegative();
+    }
+    // Mensaje ambiguo: ya se interpretó en isYes, no cuesta otra generación
+    TurnInterpretation interpretation = interpretTurn();
+    return interpretation != null ? Boolean.TRUE.equals(interpretation.negative()) : verdict.isNegative();
+  }
+
+  private String extractName(String message) {
+    if (!usesInterpreter()) {
+      return intentService.extractName(message);
+    }
+    TurnInterpretation interpretation = interpretTurn();
+    return interpretation != null && interpretation.name() != null ? interpretation.name() : message;
+  }
+
+  private boolean usesInterpreter() {
+    TurnInput input = turnInput.get();
+    return interpreterEnabled && input != null && turnInterpreter.supports(input.state);
   }
 
+  // Una sola generación por turno: la primera pregunta a la IA la hace, las siguientes la reutilizan
+  private TurnInterpretation interpretTurn() {
+    TurnInput input = turnInput.get();
+    if (!input.interpreted) {
+      input.interpreted = true;
+      input.interpretation = turnInterpreter.interpret(input.state, input.message);
+    }
+    return input.interpretation;
+  }
+
+  // CONFIRMACION crea la cotización: vale "confirmo"/"confirmar" o un "sí" con a lo sumo un remate
+  // corto, nunca una pregunta ni algo con negación. El léxico amplio queda para los pasos *_CONFIRM
   private boolean isConfirmed(String message) {
-    String normalized = normalize(message);
-    return normalized.contains("confirmo")
-        || normalized.contains("confirmar");
+    if (isQuestion(message) || hasNegation(message)) {
+      return false;
+    }
+    // "confirmar cotizacion para Juan Perez": la palabra explícita alcanza aunque el resto baje el puntaje
+    ConfirmationClassifier.Verdict verdict = confirmationClassifier.classify(message);
+    return verdict.confirmation() && verdict.polarity() == ConfirmationClassifier.Polarity.AFFIRMATIVE;
   }
 
+  // "si", "sí." o "si, dale" / "si por favor": un sí seguido como mucho de unas palabras que no lo cambian
   private boolean isSimpleYes(String message) {
-    String normalized = normalize(message);
-    return normalized.equals("si")
-        || normalized.equals("sí")
-        || normalized.startsWith("si ")
-        || normalized.startsWith("sí ");
+    if (isQuestion(message)) {
+      return false;
+    }
+    String[] words = words(message);
+    if (words.length == 0 || !words[0].equals("si") || words.length > 1 + MAX_YES_TAIL) {
+      return false;
+    }
+    for (int i = 1; i < words.length; i++) {
+      if (!YES_TAIL_WORDS.contains(words[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean hasNegation(String message) {
+    for (String word : words(message)) {
+      if (NEGATION_WORDS.contains(word)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // Palabras normalizadas, sin la puntuación que las rodea ("si," "dale!")
+  private String[] words(String message) {
+    String cleaned = normalize(message).replaceAll("[.,;:!]+", " ").trim();
+    return cleaned.isEmpty() ? new String[0] : cleaned.split("\\s+");
+  }
+
+  private boolean isQuestion(String message) {
+    return message != null && (message.contains("?") || message.contains("¿"));
   }
 
   private String normalize(String message) {
@@ -721,7 +1047,7 @@ public class AssistantService {
     context.put(CONTEXT_APROBADO, false);
     context.put(CONTEXT_ESTADO, "pendiente");
     double totalCost = calculateTotalCost(context);
-    double totalIva = totalCost * 1.21;
+    double totalIva = totalCost * IVA;
     context.put("totalCost", totalCost);
     context.put("totalIva", totalIva);
 
@@ -822,6 +1148,100 @@ public class AssistantService {
     return "No especificada";
   }
 
+  // Carga masiva: mismas validaciones, totales y armado que la confirmación de una conversación.
+  // Sin IA: el trabajo y los ítems tienen que resolverse localmente o la fila se rechaza
+  public Map<String, Object> buildDraftPayload(CotizacionDraft draft, ClienteSummary cliente) {
+    Map<String, Object> context = new HashMap<>();
+    if (cliente != null) {
+      SucursalSummary sucursal = resolveDraftSucursal(draft.sucursal(), cliente.sucursales());
+      if (sucursal == null) {
+        throw new IllegalArgumentException("Sucursal '" + sanitizeText(draft.sucursal())
+            + "' not found for cliente " + cliente.id());
+      }
+      context.put(CONTEXT_CLIENTE_ID, cliente.id());
+      context.put(CONTEXT_SUCURSAL_ID, sucursal.id());
+    } else {
+      String nombre = sanitizeText(draft.clienteManual());
+      String direccion = sanitizeText(draft.direccion());
+      if (nombre.isBlank() || direccion.isBlank()) {
+        throw new IllegalArgumentException("Manual cliente needs clienteManual and direccion");
+      }
+      Map<String, Object> clienteManual = new HashMap<>();
+      clienteManual.put("nombre", nombre);
+      context.put(CONTEXT_CLIENTE_MANUAL, clienteManual);
+      context.put(CONTEXT_UBICACION_DIRECCION, direccion);
+    }
+
+    String trabajo = resolveTrabajoLocally(draft.trabajo());
+    if (trabajo == null) {
+      throw new IllegalArgumentException("Unknown trabajo '" + sanitizeText(draft.trabajo()) + "'");
+    }
+    context.put(CONTEXT_NOMBRE_TRABAJO, trabajo);
+    if (draft.descripcionTrabajo() != null) {
+      context.put("descripcionTrabajo", sanitizeText(draft.descripcionTrabajo()));
+    }
+    Double manoDeObra = draft.manoDeObra();
+    if (manoDeObra == null || manoDeObra < 0) {
+      throw new IllegalArgumentException("manoDeObra must be a number >= 0");
+    }
+    context.put(CONTEXT_MANO_OBRA, manoDeObra);
+    addDraftItems(context, CONTEXT_MATERIALES, draft.materiales());
+    addDraftItems(context, CONTEXT_EQUIPOS, draft.equipos());
+    addDraftItems(context, CONTEXT_EXTRAS, draft.extras());
+
+    double totalCost = calculateTotalCost(context);
+    context.put("totalCost", totalCost);
+    context.put("totalIva", totalCost * IVA);
+    return buildCotizacionPayload(context);
+  }
+
+  private SucursalSummary resolveDraftSucursal(String sucursal, List<SucursalSummary> sucursales) {
+    if (sucursal == null || sucursal.isBlank()) {
+      // Sin sucursal indicada solo vale si el cliente tiene una sola
+      return sucursales.size() == 1 ? sucursales.get(0) : null;
+    }
+    for (SucursalSummary candidate : sucursales) {
+      if (sucursal.trim().equals(candidate.id())) {
+        return candidate;
+      }
+    }
+    return resolveSucursalSelection(sucursal, sucursales);
+  }
+
+  private String resolveTrabajoLocally(String trabajo) {
+    if (trabajo == null || trabajo.isBlank()) {
+      return null;
+    }
+    WorkTypeMatcher.Match match = workTypeMatcher.match(trabajo);
+    if (match != null && match.confident()) {
+      return match.option();
+    }
+    return TRABAJO_CATALOGO.get(normalize(trabajo));
+  }
+
+  private void addDraftItems(Map<String, Object> context, String key, List<CotizacionDraft.Item> items) {
+    ensureList(context, key);
+    if (items == null) {
+      return;
+    }
+    for (CotizacionDraft.Item item : items) {
+      String descripcion = item == null ? "" : sanitizeText(item.descripcion());
+      if (item != null && item.monto() != null) {
+        if (item.monto() < 0) {
+          throw new IllegalArgumentException("Negative monto in " + key + ": '" + descripcion + "'");
+        }
+        addAdditionalItem(context, key, new ParsedItem(descripcion, item.monto()));
+        continue;
+      }
+      ParsedFinancialItem parsed = smartParserService.parseLocally(descripcion);
+      if (!smartParserService.isConfident(parsed)) {
+        throw new IllegalArgumentException("Could not read " + key + " item '" + descripcion
+            + "', send descripcion and monto");
+      }
+      addAdditionalItem(context, key, new ParsedItem(parsed.description(), parsed.amount()));
+    }
+  }
+
   private Map<String, Object> buildCotizacionPayload(Map<String, Object> context) {
     Map<String, Object> payload = new HashMap<>();
     Object clienteId = context.get(CONTEXT_CLIENTE_ID);
@@ -871,7 +1291,7 @@ public class AssistantService {
     return "No pude resolver ese cliente. ¿Podés intentar con otro nombre?";
   }
 
-  private String buildAskClienteExistenteMultiple(List<Map<String, Object>> matches) {
+  private String buildAskClienteExistenteMultiple(List<ClienteSummary> matches) {
     StringBuilder builder = new StringBuilder("Encontré varios clientes:\n");
     for (int i = 0; i < matches.size(); i++) {
       builder.append(i + 1)
@@ -891,7 +1311,7 @@ public class AssistantService {
     return "Indicame el nombre del cliente.";
   }
 
-  private String buildAskSucursal(List<Map<String, Object>> sucursales) {
+  private String buildAskSucursal(List<SucursalSummary> sucursales) {
     if (sucursales == null || sucursales.isEmpty()) {
       return "No pude obtener sucursales para este cliente. ¿Querés intentar más tarde?";
     }
@@ -907,7 +1327,7 @@ public class AssistantService {
     return builder.toString();
   }
 
-  private String buildAskSucursalInvalid(List<Map<String, Object>> sucursales) {
+  private String buildAskSucursalInvalid(List<SucursalSummary> sucursales) {
     if (sucursales == null || sucursales.isEmpty()) {
       return "No tengo sucursales disponibles para este cliente. ¿Querés intentar más tarde?";
     }
@@ -1014,42 +1434,73 @@ public class AssistantService {
   }
 
   private String humanize(String instruction) {
-    String prompt = "Tu rol: Asistente virtual de una empresa de instalaciones y mantenimiento (aire acondicionado, calderas, electricidad, etc.). "
-        +
-        "Sé útil, breve y profesional. Parafrasea esta instrucción del sistema para el usuario: "
-        + instruction;
-    return renderWithOllama(prompt, instruction);
+    // Variante pre-generada: evita una generación completa por turno
+    String cached = paraphraseCache.next(instruction, () -> generateText(OllamaTask.HUMANIZE, instruction, null));
+    if (cached != null) {
+      Consumer<String> sink = replySink.get();
+      if (sink != null) {
+        sink.accept(cached);
+      }
+      return cached;
+    }
+
+    Consumer<String> sink = replySink.get();
+    if (sink == null) {
+      String response = generateText(OllamaTask.HUMANIZE, instruction, null);
+      if (response == null) {
+        return instruction;
+      }
+      paraphraseCache.offer(instruction, response);
+      return response;
+    }
+
+    StringBuilder streamed = new StringBuilder();
+    String response = generateText(OllamaTask.HUMANIZE, instruction, token -> {
+      streamed.append(token);
+      sink.accept(token);
+    });
+    if (response == null) {
+      // El stream se cortó (timeout, presupuesto del turno): la respuesta final tiene que ser lo
+      // mismo que el cliente ya recibió en tokens, no un texto distinto
+      String partial = streamed.toString().trim();
+      return partial.isEmpty() ? emitReply(instruction) : partial;
+    }
+    paraphraseCache.offer(instruction, response);
+    return response;
   }
 
-  private String renderWithOllama(String prompt, String fallback) {
+  private String generateText(OllamaTask task, String instruction, Consumer<String> sink) {
     try {
-      String response = ollamaClient.generate(prompt);
+      String response = sink != null
+          ? ollamaClient.generateStream(task, HUMANIZE_SYSTEM, instruction, sink)
+          : ollamaClient.generate(task, HUMANIZE_SYSTEM, instruction);
       if (response == null || response.isBlank()) {
-        return fallback;
+        return null;
       }
       return response.trim();
     } catch (Exception ex) {
       log.warn("Ollama unavailable, using fallback response");
-      return fallback;
+      return null;
     }
   }
 
   private String renderWithOllamaValidated(String prompt, String fallback,
       java.util.function.Predicate<String> validator) {
     try {
-      String response = ollamaClient.generate(prompt);
+      String response = ollamaClient.generate(OllamaTask.ASK_TRABAJO, prompt);
       if (response == null || response.isBlank()) {
-        return fallback;
+        return emitReply(fallback);
       }
       String trimmed = response.trim();
       if (!validator.test(trimmed)) {
         log.warn("Ollama response failed validation, using fallback");
-        return fallback;
+        return emitReply(fallback);
       }
-      return trimmed;
+      // Se genera entero para poder validarlo; recién entonces se manda por el stream
+      return emitReply(trimmed);
     } catch (Exception ex) {
       log.warn("Ollama unavailable, using fallback response");
-      return fallback;
+      return emitReply(fallback);
     }
   }
 
@@ -1112,6 +1563,18 @@ public class AssistantService {
   private record ParsedItem(String descripcion, double monto) {
   }
 
+  private static final class TurnInput {
+    private final ConversationState state;
+    private final String message;
+    private boolean interpreted;
+    private TurnInterpretation interpretation;
+
+    TurnInput(ConversationState state, String message) {
+      this.state = state;
+      this.message = message;
+    }
+  }
+
   private interface ResponseSupplier {
     String get();
   }
@@ -1,56 +1,104 @@
 package com.ri.orchestrator.service;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.ri.orchestrator.config.PerCallTimeoutRequestFactory;
+import com.ri.orchestrator.dto.ClienteSummary;
 import com.ri.orchestrator.security.ServiceTokenProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.DefaultResponseErrorHandler;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.util.DefaultUriBuilderFactory;
 
 @Component
 public class AwsBackendClient {
   private static final Logger log = LoggerFactory.getLogger(AwsBackendClient.class);
+  private static final Duration READ_TIMEOUT = Duration.ofSeconds(60);
+  private static final TypeReference<Map<String, Object>> OBJECT = new TypeReference<>() {};
+  private static final ResponseErrorHandler ERRORS = new DefaultResponseErrorHandler();
+  private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
   private final RestClient restClient;
+  private final HttpClient httpClient;
+  private final ObjectMapper objectMapper;
+  private final DefaultUriBuilderFactory uriFactory = new DefaultUriBuilderFactory();
   private final String baseUrl;
   private final String serviceToken;
   private final ServiceTokenProvider tokenProvider;
+  private final int searchLimit;
+  private final LookupCache<List<ClienteSummary>> searchCache;
+  private final LookupCache<ClienteSummary> userCache;
 
   public AwsBackendClient(RestClient restClient,
+                          HttpClient httpClient,
+                          ObjectMapper objectMapper,
                           @Value("${aws.backend.base-url}") String baseUrl,
                           @Value("${aws.backend.service-token:}") String serviceToken,
-                          ServiceTokenProvider tokenProvider) {
+                          ServiceTokenProvider tokenProvider,
+                          @Value("${aws.backend.search.max-matches:20}") int searchLimit,
+                          @Value("${aws.backend.cache.max-entries:1000}") int cacheEntries,
+                          @Value("${aws.backend.cache.search-ttl:5m}") Duration searchTtl,
+                          @Value("${aws.backend.cache.negative-ttl:30s}") Duration negativeTtl,
+                          @Value("${aws.backend.cache.user-ttl:5m}") Duration userTtl) {
     this.restClient = restClient;
+    this.httpClient = httpClient;
+    this.objectMapper = objectMapper;
     this.baseUrl = baseUrl;
     this.serviceToken = serviceToken != null && !serviceToken.isBlank() ? serviceToken : null;
     this.tokenProvider = tokenProvider;
+    this.searchLimit = Math.max(1, searchLimit);
+    this.searchCache = new LookupCache<>(cacheEntries, searchTtl, negativeTtl, List::isEmpty);
+    this.userCache = new LookupCache<>(cacheEntries, userTtl, userTtl, user -> false);
   }
 
-  public Map<String, Object> getUserById(String userId) {
-    return getForObject("/users/user/{id}", userId);
+  public ClienteSummary getUserById(String userId) {
+    return userCache.get(userId,
+        () -> getForObject("/users/user/{id}", userId, AwsUserReader::readCliente, null));
   }
 
   public Map<String, Object> getSucursalById(String sucursalId) {
-    return getForObject("/sucursales/{id}", sucursalId);
+    return getForObject("/sucursales/{id}", sucursalId, this::readObject, Map.of());
   }
 
   public Map<String, Object> createCotizacion(Map<String, Object> payload) {
     try {
-      return restClient.post()
+      return withinTurnBudget(() -> restClient.post()
           .uri(baseUrl + "/cotizaciones")
           .header(HttpHeaders.AUTHORIZATION, "Bearer " + token())
           .body(payload)
           .retrieve()
-          .body(new ParameterizedTypeReference<Map<String, Object>>() {});
+          .body(new ParameterizedTypeReference<Map<String, Object>>() {}));
     } catch (HttpStatusCodeException ex) {
       log.warn("AWS cotizacion create error: status={}, body='{}'",
           ex.getStatusCode(), ex.getResponseBodyAsString());
@@ -60,54 +108,283 @@ public class AwsBackendClient {
     }
   }
 
-  public List<Map<String, Object>> searchUsersByName(String name) {
+  public List<ClienteSummary> searchUsersByName(String name) {
     boolean authHeaderPresent = token() != null && !token().isBlank();
     log.info("AWS user search request: authHeaderPresent={}, name='{}'", authHeaderPresent, name);
+    if (TurnDeadline.exhausted()) {
+      log.warn("AWS user search skipped: turn budget exhausted");
+      return null;
+    }
+    try {
+      String query = searchKey(name);
+      return searchCache.get(query, () -> searchRemote(query));
+    } catch (TurnBudgetExceededException ex) {
+      log.warn("AWS user search skipped: {}", ex.getMessage());
+      return null;
+    }
+  }
+
+  // Sin bloquear un hilo mientras AWS responde. La búsqueda puede estar compartida con otros
+  // turnos (misma clave): cancelar el futuro corta el request sólo si nadie más lo espera
+  public CompletableFuture<List<ClienteSummary>> searchUsersByNameAsync(String name) {
+    log.info("AWS user search request (async): authHeaderPresent={}, name='{}'",
+        token() != null && !token().isBlank(), name);
+    if (TurnDeadline.exhausted()) {
+      log.warn("AWS user search skipped: turn budget exhausted");
+      return CompletableFuture.completedFuture(null);
+    }
+    String query = searchKey(name);
+    return searchCache.getAsync(query, () -> searchRemoteAsync(query));
+  }
+
+  public CompletableFuture<ClienteSummary> getUserByIdAsync(String userId) {
+    return userCache.getAsync(userId,
+        () -> getForObjectAsync("/users/user/{id}", userId, AwsUserReader::readCliente, null));
+  }
+
+  public CompletableFuture<Map<String, Object>> getSucursalByIdAsync(String sucursalId) {
+    return getForObjectAsync("/sucursales/{id}", sucursalId, this::readObject, Map.of());
+  }
+
+  public CompletableFuture<Map<String, Object>> createCotizacionAsync(Map<String, Object> payload) {
+    return createCotizacionAsync(payload, null);
+  }
+
+  // Con clave de idempotencia: reintentar la misma cotización no debe crearla dos veces
+  public CompletableFuture<Map<String, Object>> createCotizacionAsync(Map<String, Object> payload,
+                                                                      String idempotencyKey) {
+    CompletableFuture<Map<String, Object>> response =
+        sendAsync(uriFactory.expand(baseUrl + "/cotizaciones"), payload, idempotencyKey, this::readObject);
+    return Futures.handle(response, (created, ex) -> {
+      if (ex == null) {
+        return created;
+      }
+      if (ex instanceof HttpStatusCodeException statusEx) {
+        log.warn("AWS cotizacion create error: status={}, body='{}'",
+            statusEx.getStatusCode(), statusEx.getResponseBodyAsString());
+        throw statusEx;
+      }
+      if (ex instanceof RestClientException) {
+        throw new IllegalStateException("AWS backend request failed", ex);
+      }
+      throw Futures.asRuntime(ex);
+    });
+  }
+
+  // Una página del listado de clientes para el directorio local (fuera de cualquier turno)
+  public List<ClienteSummary> listUsers(String path, int page, int size, Instant updatedSince) {
+    Map<String, Object> params = new LinkedHashMap<>();
+    params.put("page", page);
+    params.put("limit", size);
+    String query = "?page={page}&limit={limit}";
+    if (updatedSince != null) {
+      params.put("updatedSince", updatedSince.toString());
+      query += "&updatedSince={updatedSince}";
+    }
     try {
-      List<Map<String, Object>> response = restClient.get()
+      return restClient.get()
+          .uri(baseUrl + path + query, params)
+          .header(HttpHeaders.AUTHORIZATION, "Bearer " + token())
+          .exchange((request, response) -> read(response,
+              parser -> AwsUserReader.readClientes(parser, Integer.MAX_VALUE)));
+    } catch (RestClientException ex) {
+      throw new IllegalStateException("AWS user listing failed", ex);
+    }
+  }
+
+  // Estadísticas de las caches de búsqueda y de usuarios
+  public Map<String, Object> describeCaches() {
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("search", searchCache.describe());
+    result.put("users", userCache.describe());
+    return result;
+  }
+
+  private List<ClienteSummary> searchRemote(String name) {
+    try {
+      return withinTurnBudget(() -> restClient.get()
           .uri(baseUrl + "/users/search?q={name}", name)
           .header(HttpHeaders.AUTHORIZATION, "Bearer " + token())
-          .retrieve()
-          .body(new ParameterizedTypeReference<List<Map<String, Object>>>() {});
-      return response == null ? Collections.emptyList() : response;
-    } catch (HttpClientErrorException.NotFound ex) {
-      log.info("AWS user search response: status=404, body='{}'", ex.getResponseBodyAsString());
+          .exchange((request, response) -> read(response, this::readClientes)));
+    } catch (RestClientException ex) {
+      return searchFailed(ex);
+    }
+  }
+
+  private CompletableFuture<List<ClienteSummary>> searchRemoteAsync(String name) {
+    CompletableFuture<List<ClienteSummary>> response =
+        sendAsync(uriFactory.expand(baseUrl + "/users/search?q={name}", name), null, null, this::readClientes);
+    return Futures.handle(response, (users, ex) -> {
+      if (ex == null) {
+        return users == null ? Collections.<ClienteSummary>emptyList() : users;
+      }
+      if (ex instanceof RestClientException restEx) {
+        return searchFailed(restEx);
+      }
+      log.warn("AWS user search unexpected error: {}", ex.getMessage());
+      return null;
+    });
+  }
+
+  private List<ClienteSummary> searchFailed(RestClientException ex) {
+    if (ex instanceof HttpClientErrorException.NotFound notFound) {
+      log.info("AWS user search response: status=404, body='{}'", notFound.getResponseBodyAsString());
       return Collections.emptyList();
-    } catch (HttpClientErrorException.Unauthorized | HttpClientErrorException.Forbidden ex) {
+    }
+    if (ex instanceof HttpClientErrorException.Unauthorized || ex instanceof HttpClientErrorException.Forbidden) {
+      HttpStatusCodeException statusEx = (HttpStatusCodeException) ex;
       log.warn("AWS user search auth failed: status={}, body='{}'",
-          ex.getStatusCode(), ex.getResponseBodyAsString());
-      return null;
-    } catch (HttpServerErrorException ex) {
+          statusEx.getStatusCode(), statusEx.getResponseBodyAsString());
+    } else if (ex instanceof HttpServerErrorException statusEx) {
       log.warn("AWS user search server error: status={}, body='{}'",
-          ex.getStatusCode(), ex.getResponseBodyAsString());
-      return null;
-    } catch (ResourceAccessException ex) {
+          statusEx.getStatusCode(), statusEx.getResponseBodyAsString());
+    } else if (ex instanceof ResourceAccessException) {
       log.warn("AWS user search network error: {}", ex.getMessage());
-      return null;
-    } catch (HttpStatusCodeException ex) {
+    } else if (ex instanceof HttpStatusCodeException statusEx) {
       log.warn("AWS user search error: status={}, body='{}'",
-          ex.getStatusCode(), ex.getResponseBodyAsString());
-      return null;
-    } catch (RestClientException ex) {
+          statusEx.getStatusCode(), statusEx.getResponseBodyAsString());
+    } else {
       log.warn("AWS user search unexpected error: {}", ex.getMessage());
-      return null;
     }
+    return null;
   }
 
-  private Map<String, Object> getForObject(String path, String id) {
+  private <T> T getForObject(String path, String id, BodyReader<T> reader, T notFound) {
+    if (TurnDeadline.exhausted()) {
+      throw new TurnBudgetExceededException("Turn budget exhausted before AWS request");
+    }
     try {
-      return restClient.get()
+      return withinTurnBudget(() -> restClient.get()
           .uri(baseUrl + path, id)
           .header(HttpHeaders.AUTHORIZATION, "Bearer " + token())
-          .retrieve()
-          .body(new ParameterizedTypeReference<Map<String, Object>>() {});
+          .exchange((request, response) -> read(response, reader)));
     } catch (HttpClientErrorException.NotFound ex) {
-      return Map.of();
+      return notFound;
     } catch (RestClientException ex) {
       throw new IllegalStateException("AWS backend request failed", ex);
     }
   }
 
+  private <T> CompletableFuture<T> getForObjectAsync(String path, String id, BodyReader<T> reader, T notFound) {
+    if (TurnDeadline.exhausted()) {
+      return CompletableFuture.failedFuture(
+          new TurnBudgetExceededException("Turn budget exhausted before AWS request"));
+    }
+    CompletableFuture<T> response = sendAsync(uriFactory.expand(baseUrl + path, id), null, null, reader);
+    return Futures.handle(response, (body, ex) -> {
+      if (ex == null) {
+        return body;
+      }
+      if (ex instanceof HttpClientErrorException.NotFound) {
+        return notFound;
+      }
+      if (ex instanceof RestClientException) {
+        throw new IllegalStateException("AWS backend request failed", ex);
+      }
+      throw Futures.asRuntime(ex);
+    });
+  }
+
+  // Mismos errores que el RestClient (HttpStatusCodeException, ResourceAccessException) para compartir el manejo
+  private <T> CompletableFuture<T> sendAsync(URI uri, Object payload, String idempotencyKey,
+                                             BodyReader<T> reader) {
+    HttpRequest request;
+    try {
+      HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+          .timeout(requestTimeout())
+          .header(HttpHeaders.AUTHORIZATION, "Bearer " + token())
+          .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+      if (idempotencyKey != null) {
+        builder.header(IDEMPOTENCY_KEY, idempotencyKey);
+      }
+      if (payload == null) {
+        builder.GET();
+      } else {
+        builder.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(payload)));
+      }
+      request = builder.build();
+    } catch (JsonProcessingException ex) {
+      return CompletableFuture.failedFuture(new RestClientException("Could not write AWS request body", ex));
+    } catch (RuntimeException ex) {
+      return CompletableFuture.failedFuture(ex);
+    }
+    CompletableFuture<HttpResponse<byte[]>> exchange =
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+    CompletableFuture<T> result = exchange.handle((response, ex) -> {
+      if (ex != null) {
+        Throwable cause = Futures.unwrap(ex);
+        if (cause instanceof IOException io) {
+          throw new ResourceAccessException("I/O error on " + request.method() + " request for \""
+              + uri + "\": " + io.getMessage(), io);
+        }
+        throw Futures.asRuntime(cause);
+      }
+      HttpStatusCode status = HttpStatusCode.valueOf(response.statusCode());
+      if (!status.is2xxSuccessful()) {
+        throw status.is4xxClientError()
+            ? HttpClientErrorException.create(status, "", new HttpHeaders(), response.body(), StandardCharsets.UTF_8)
+            : HttpServerErrorException.create(status, "", new HttpHeaders(), response.body(), StandardCharsets.UTF_8);
+      }
+      if (response.body().length == 0) {
+        return null;
+      }
+      try (JsonParser parser = objectMapper.createParser(response.body())) {
+        return reader.read(parser);
+      } catch (IOException io) {
+        throw new RestClientException("Could not read AWS response body", io);
+      }
+    });
+    Futures.cancelWith(result, exchange);
+    return result;
+  }
+
+  // Mismo manejo de estados que retrieve(), pero el cuerpo se lee en streaming sin pasar por un Map
+  private <T> T read(ClientHttpResponse response, BodyReader<T> reader) throws IOException {
+    if (ERRORS.hasError(response)) {
+      ERRORS.handleError(response);
+    }
+    InputStream body = response.getBody();
+    try (JsonParser parser = objectMapper.createParser(body)) {
+      return reader.read(parser);
+    } catch (JsonProcessingException ex) {
+      throw new RestClientException("Could not read AWS response body", ex);
+    }
+  }
+
+  private Map<String, Object> readObject(JsonParser parser) throws IOException {
+    return parser.nextToken() == null ? null : objectMapper.readValue(parser, OBJECT);
+  }
+
+  // La clave es también el texto que se manda a AWS, así el resultado cacheado no depende de
+  // quién buscó primero. Los acentos se mantienen: no sabemos si la búsqueda de AWS los ignora
+  private static String searchKey(String name) {
+    return name == null ? "" : name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+  }
+
+  private List<ClienteSummary> readClientes(JsonParser parser) throws IOException {
+    return AwsUserReader.readClientes(parser, searchLimit);
+  }
+
+  private Duration requestTimeout() {
+    TurnDeadline deadline = TurnDeadline.current();
+    return deadline == null ? READ_TIMEOUT : deadline.limit(READ_TIMEOUT);
+  }
+
+  private <T> T withinTurnBudget(Supplier<T> call) {
+    // Cada request recibe solo lo que le queda al turno
+    TurnDeadline deadline = TurnDeadline.current();
+    if (deadline == null) {
+      return call.get();
+    }
+    return PerCallTimeoutRequestFactory.withReadTimeout(deadline.timeout(), call);
+  }
+
+  @FunctionalInterface
+  private interface BodyReader<T> {
+    T read(JsonParser parser) throws IOException;
+  }
+
   private String token() {
     if (serviceToken != null) {
       return serviceToken;
@@ -0,0 +1,149 @@
+package com.ri.orchestrator.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.ri.orchestrator.dto.ClienteSummary;
+import com.ri.orchestrator.dto.SucursalSummary;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Lee los documentos de usuario de AWS en streaming y se queda solo con id, nombre y sucursales:
+// el resto del documento se saltea sin construir mapas
+final class AwsUserReader {
+  private AwsUserReader() {
+  }
+
+  static List<ClienteSummary> readClientes(JsonParser parser, int limit) throws IOException {
+    JsonToken token = parser.nextToken();
+    if (token == null || token == JsonToken.VALUE_NULL) {
+      return List.of();
+    }
+    if (token != JsonToken.START_ARRAY) {
+      throw new JsonParseException(parser, "Expected an array of users, got " + token);
+    }
+    List<ClienteSummary> result = new ArrayList<>();
+    // Alcanzado el límite no se sigue leyendo: el resto de la respuesta ni se parsea
+    while (result.size() < limit) {
+      token = next(parser);
+      if (token == JsonToken.END_ARRAY) {
+        break;
+      }
+      if (token == JsonToken.START_OBJECT) {
+        result.add(readCliente(parser));
+      } else {
+        parser.skipChildren();
+      }
+    }
+    // Inmutable: la misma lista puede quedar en la cache y en varias sesiones
+    return List.copyOf(result);
+  }
+
+  static ClienteSummary readCliente(JsonParser parser) throws IOException {
+    JsonToken token = parser.currentToken() == null ? parser.nextToken() : parser.currentToken();
+    if (token == null || token == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    if (token != JsonToken.START_OBJECT) {
+      throw new JsonParseException(parser, "Expected a user object, got " + token);
+    }
+    String id = null;
+    String altId = null;
+    String nombre = null;
+    String name = null;
+    String razonSocial = null;
+    List<SucursalSummary> sucursales = List.of();
+    while (next(parser) == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      parser.nextToken();
+      switch (field) {
+        case "_id" -> id = text(parser);
+        case "id" -> altId = text(parser);
+        case "nombre" -> nombre = text(parser);
+        case "name" -> name = text(parser);
+        case "razonSocial" -> razonSocial = text(parser);
+        case "sucursales" -> sucursales = readSucursales(parser);
+        default -> parser.skipChildren();
+      }
+    }
+    return new ClienteSummary(trimToNull(id != null ? id : altId),
+        firstNonNull(nombre, name, razonSocial), sucursales);
+  }
+
+  private static List<SucursalSummary> readSucursales(JsonParser parser) throws IOException {
+    if (parser.currentToken() != JsonToken.START_ARRAY) {
+      parser.skipChildren();
+      return List.of();
+    }
+    List<SucursalSummary> result = new ArrayList<>();
+    JsonToken token;
+    while ((token = next(parser)) != JsonToken.END_ARRAY) {
+      if (token != JsonToken.START_OBJECT) {
+        parser.skipChildren();
+        continue;
+      }
+      String id = null;
+      String altId = null;
+      String nombre = null;
+      String name = null;
+      while (next(parser) == JsonToken.FIELD_NAME) {
+        String field = parser.currentName();
+        parser.nextToken();
+        switch (field) {
+          case "_id" -> id = text(parser);
+          case "id" -> altId = text(parser);
+          case "nombre" -> nombre = text(parser);
+          case "name" -> name = text(parser);
+          default -> parser.skipChildren();
+        }
+      }
+      result.add(new SucursalSummary(trimToNull(id != null ? id : altId), firstNonNull(nombre, name)));
+    }
+    return List.copyOf(result);
+  }
+
+  private static String text(JsonParser parser) throws IOException {
+    JsonToken token = parser.currentToken();
+    if (token == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    if (token.isScalarValue()) {
+      return parser.getText();
+    }
+    if (token == JsonToken.START_OBJECT) {
+      // ObjectId exportado como {"$oid": "..."}
+      JsonNode node = parser.readValueAsTree();
+      JsonNode oid = node.get("$oid");
+      return oid != null ? oid.asText() : node.toString();
+    }
+    parser.skipChildren();
+    return null;
+  }
+
+  private static JsonToken next(JsonParser parser) throws IOException {
+    JsonToken token = parser.nextToken();
+    if (token == null) {
+      throw new JsonParseException(parser, "Unexpected end of AWS user response");
+    }
+    return token;
+  }
+
+  private static String firstNonNull(String... values) {
+    for (String value : values) {
+      if (value != null) {
+        return value;
+      }
+    }
+    return null;
+  }
+
+  private static String trimToNull(String value) {
+    if (value == null) {
+      return null;
+    }
+    String trimmed = value.trim();
+    return trimmed.isBlank() ? null : trimmed;
+  }
+}
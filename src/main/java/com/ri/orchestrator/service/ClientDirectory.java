@@ -0,0 +1,202 @@
+package com.ri.orchestrator.service;
+
+import com.ri.orchestrator.dto.ClienteSummary;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Copia local de los clientes (id, nombre, sucursales) para buscar sin ir a AWS. Si el índice
+// está vencido o no encuentra nada se consulta la búsqueda remota; si AWS no responde se usa
+// lo que haya localmente aunque esté vencido
+@Component
+public class ClientDirectory {
+  private static final Logger log = LoggerFactory.getLogger(ClientDirectory.class);
+  // Margen para relojes desfasados entre este servicio y AWS en la sincronización incremental
+  private static final Duration CLOCK_SKEW = Duration.ofMinutes(1);
+
+  private final AwsBackendClient awsBackendClient;
+  private final boolean enabled;
+  private final String path;
+  private final int pageSize;
+  private final int searchLimit;
+  private final Duration fullRefreshInterval;
+  private final Duration maxStaleness;
+  private final AtomicLong localHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong staleFallbacks = new AtomicLong();
+  private final AtomicLong servedStale = new AtomicLong();
+  private final AtomicLong refreshes = new AtomicLong();
+  private final AtomicLong fullRefreshes = new AtomicLong();
+  private final AtomicLong refreshFailures = new AtomicLong();
+  private volatile ClientIndex index = ClientIndex.EMPTY;
+  private volatile long syncedAtNanos;
+  private volatile Instant syncedAt;
+  private volatile long lastRefreshMillis;
+  private Instant lastFullSync;
+
+  public ClientDirectory(AwsBackendClient awsBackendClient,
+                         @Value("${aws.backend.directory.enabled:false}") boolean enabled,
+                         @Value("${aws.backend.directory.path:/users}") String path,
+                         @Value("${aws.backend.directory.page-size:1000}") int pageSize,
+                         @Value("${aws.backend.search.max-matches:20}") int searchLimit,
+                         @Value("${aws.backend.directory.full-refresh-interval:PT6H}") Duration fullRefreshInterval,
+                         @Value("${aws.backend.directory.max-staleness:PT30M}") Duration maxStaleness) {
+    this.awsBackendClient = awsBackendClient;
+    this.enabled = enabled;
+    this.path = path;
+    this.pageSize = Math.max(1, pageSize);
+    this.searchLimit = Math.max(1, searchLimit);
+    this.fullRefreshInterval = fullRefreshInterval;
+    this.maxStaleness = maxStaleness;
+  }
+
+  // Carga completa al arrancar y cada full-refresh-interval (para soltar clientes borrados);
+  // en el medio solo se piden los modificados desde la última sincronización
+  @Scheduled(fixedDelayString = "${aws.backend.directory.refresh-interval:PT5M}")
+  public void refresh() {
+    if (!enabled) {
+      return;
+    }
+    Instant started = Instant.now();
+    boolean full = lastFullSync == null
+        || Duration.between(lastFullSync, started).compareTo(fullRefreshInterval) >= 0;
+    long startedNanos = System.nanoTime();
+    try {
+      List<ClienteSummary> changed = fetch(full ? null : syncedAt.minus(CLOCK_SKEW));
+      if (full || !changed.isEmpty()) {
+        Map<String, ClienteSummary> clients = new LinkedHashMap<>();
+        if (!full) {
+          for (ClienteSummary cliente : index.clients()) {
+            clients.put(cliente.id(), cliente);
+          }
+        }
+        for (ClienteSummary cliente : changed) {
+          if (cliente.id() != null) {
+            clients.put(cliente.id(), cliente);
+          }
+        }
+        index = ClientIndex.build(clients.values());
+      }
+      syncedAtNanos = startedNanos;
+      syncedAt = started;
+      lastRefreshMillis = (System.nanoTime() - startedNanos) / 1_000_000;
+      refreshes.incrementAndGet();
+      if (full) {
+        lastFullSync = started;
+        fullRefreshes.incrementAndGet();
+      }
+      log.info("Client directory {} refresh: {} changed, {} clients, {} ms",
+          full ? "full" : "incremental", changed.size(), index.size(), lastRefreshMillis);
+    } catch (RuntimeException ex) {
+      refreshFailures.incrementAndGet();
+      log.warn("Client directory refresh failed: {}", ex.getMessage());
+    }
+  }
+
+  public List<ClienteSummary> search(String name) {
+    if (!enabled) {
+      return awsBackendClient.searchUsersByName(name);
+    }
+    List<ClienteSummary> local = index.search(name, searchLimit);
+    if (isUsable(local)) {
+      return local;
+    }
+    return orLocal(awsBackendClient.searchUsersByName(name), local);
+  }
+
+  public CompletableFuture<List<ClienteSummary>> searchAsync(String name) {
+    if (!enabled) {
+      return awsBackendClient.searchUsersByNameAsync(name);
+    }
+    List<ClienteSummary> local = index.search(name, searchLimit);
+    if (isUsable(local)) {
+      return CompletableFuture.completedFuture(local);
+    }
+    return Futures.handle(awsBackendClient.searchUsersByNameAsync(name),
+        (remote, ex) -> orLocal(ex == null ? remote : null, local));
+  }
+
+  // Cliente por id solo si el directorio está al día (si no, null y se consulta AWS)
+  public ClienteSummary find(String id) {
+    return enabled && !isStale() ? index.get(id) : null;
+  }
+
+  public Map<String, Object> describe() {
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("enabled", enabled);
+    result.put("clients", index.size());
+    result.put("trigrams", index.gramCount());
+    result.put("synced_at", syncedAt == null ? null : syncedAt.toString());
+    result.put("stale", enabled && isStale());
+    result.put("last_refresh_ms", lastRefreshMillis);
+    result.put("refreshes", refreshes.get());
+    result.put("full_refreshes", fullRefreshes.get());
+    result.put("refresh_failures", refreshFailures.get());
+    result.put("local_hits", localHits.get());
+    result.put("misses", misses.get());
+    result.put("stale_fallbacks", staleFallbacks.get());
+    result.put("served_stale", servedStale.get());
+    return result;
+  }
+
+  private boolean isUsable(List<ClienteSummary> local) {
+    if (isStale()) {
+      staleFallbacks.incrementAndGet();
+      return false;
+    }
+    if (local == null || local.isEmpty()) {
+      misses.incrementAndGet();
+      return false;
+    }
+    localHits.incrementAndGet();
+    return true;
+  }
+
+  // AWS no disponible (null): mejor lo que sabemos localmente que "no puedo buscar ahora"
+  private List<ClienteSummary> orLocal(List<ClienteSummary> remote, List<ClienteSummary> local) {
+    if (remote == null && local != null && !local.isEmpty()) {
+      servedStale.incrementAndGet();
+      return local;
+    }
+    return remote;
+  }
+
+  private boolean isStale() {
+    long synced = syncedAtNanos;
+    return syncedAt == null || System.nanoTime() - synced > maxStaleness.toNanos();
+  }
+
+  private List<ClienteSummary> fetch(Instant updatedSince) {
+    List<ClienteSummary> result = new ArrayList<>();
+    String previousFirst = null;
+    for (int page = 1; ; page++) {
+      List<ClienteSummary> batch = awsBackendClient.listUsers(path, page, pageSize, updatedSince);
+      if (batch == null || batch.isEmpty()) {
+        break;
+      }
+      String first = batch.get(0).id();
+      if (page > 1 && Objects.equals(first, previousFirst)) {
+        // El backend ignora la paginación y devuelve siempre lo mismo
+        log.warn("Client directory listing at {} repeats page {}, stopping", path, page);
+        break;
+      }
+      previousFirst = first;
+      result.addAll(batch);
+      if (batch.size() < pageSize) {
+        break;
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,214 @@
+package com.ri.orchestrator.service;
+
+import com.ri.orchestrator.dto.ClienteSummary;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Índice inmutable de clientes por trigramas del nombre normalizado (sin acentos, minúsculas).
+// Los nombres se guardan con un espacio a cada lado, así " ju" también indexa los prefijos de
+// palabra, y ordenados alfabéticamente: las listas de posiciones salen en orden alfabético
+final class ClientIndex {
+  static final ClientIndex EMPTY = build(List.of());
+
+  private final ClienteSummary[] clients;
+  private final String[] names;
+  private final Map<String, Integer> byId;
+  private final Map<Long, int[]> grams;
+
+  private ClientIndex(ClienteSummary[] clients, String[] names, Map<String, Integer> byId,
+                      Map<Long, int[]> grams) {
+    this.clients = clients;
+    this.names = names;
+    this.byId = byId;
+    this.grams = grams;
+  }
+
+  static ClientIndex build(Collection<ClienteSummary> source) {
+    int size = source.size();
+    Integer[] order = new Integer[size];
+    String[] folded = new String[size];
+    ClienteSummary[] unsorted = source.toArray(new ClienteSummary[0]);
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+      folded[i] = " " + fold(unsorted[i].nombre()) + " ";
+    }
+    Arrays.sort(order, Comparator.comparing(i -> folded[i]));
+    ClienteSummary[] clients = new ClienteSummary[size];
+    String[] names = new String[size];
+    Map<String, Integer> byId = new HashMap<>(size * 4 / 3 + 1);
+    Map<Long, Postings> building = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      clients[i] = unsorted[order[i]];
+      String name = folded[order[i]];
+      names[i] = name;
+      if (clients[i].id() != null) {
+        byId.put(clients[i].id(), i);
+      }
+      for (int j = 0; j + 3 <= name.length(); j++) {
+        Long key = gram(name, j);
+        Postings postings = building.get(key);
+        if (postings == null) {
+          postings = new Postings();
+          building.put(key, postings);
+        }
+        postings.add(i);
+      }
+    }
+    Map<Long, int[]> grams = new HashMap<>(building.size() * 4 / 3 + 1);
+    building.forEach((key, postings) -> grams.put(key, postings.toArray()));
+    return new ClientIndex(clients, names, byId, grams);
+  }
+
+  // Minúsculas sin acentos; todo lo que no sea letra o número separa palabras
+  static String fold(String text) {
+    if (text == null) {
+      return "";
+    }
+    String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD).toLowerCase(Locale.ROOT);
+    StringBuilder result = new StringBuilder(decomposed.length());
+    boolean gap = false;
+    for (int i = 0; i < decomposed.length(); i++) {
+      char c = decomposed.charAt(i);
+      if (Character.getType(c) == Character.NON_SPACING_MARK) {
+        continue;
+      }
+      if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+        if (gap && result.length() > 0) {
+          result.append(' ');
+        }
+        result.append(c);
+        gap = false;
+      } else {
+        gap = true;
+      }
+    }
+    return result.toString();
+  }
+
+  int size() {
+    return clients.length;
+  }
+
+  int gramCount() {
+    return grams.size();
+  }
+
+  ClienteSummary get(String id) {
+    Integer position = id == null ? null : byId.get(id);
+    return position == null ? null : clients[position];
+  }
+
+  Collection<ClienteSummary> clients() {
+    return Arrays.asList(clients);
+  }
+
+  // Cada palabra de la consulta tiene que aparecer en el nombre (las de dos letras, como
+  // comienzo de palabra). Primero los nombres que empiezan con la consulta, después el resto en
+  // orden alfabético; se corta al llegar al límite. null si la consulta no tiene nada indexable
+  List<ClienteSummary> search(String query, int limit) {
+    String folded = fold(query);
+    if (folded.isEmpty()) {
+      return null;
+    }
+    String[] tokens = folded.split(" ");
+    String[] needles = new String[tokens.length];
+    List<int[]> lists = new ArrayList<>();
+    for (int t = 0; t < tokens.length; t++) {
+      needles[t] = tokens[t].length() >= 3 ? tokens[t] : " " + tokens[t];
+      // Una sola letra no filtra: se verifica contra los candidatos
+      for (int j = 0; j + 3 <= needles[t].length(); j++) {
+        int[] postings = grams.get(gram(needles[t], j));
+        if (postings == null) {
+          return List.of();
+        }
+        lists.add(postings);
+      }
+    }
+    if (lists.isEmpty()) {
+      return null;
+    }
+    lists.sort(Comparator.comparingInt(list -> list.length));
+    List<ClienteSummary> result = new ArrayList<>(limit);
+    // Los que empiezan con la consulta quedan contiguos en el orden alfabético
+    String prefix = " " + folded;
+    int from = lowerBound(prefix);
+    int to = lowerBound(prefix + Character.MAX_VALUE);
+    for (int i = from; i < to && result.size() < limit; i++) {
+      result.add(clients[i]);
+    }
+    int[] smallest = lists.get(0);
+    for (int k = 0; k < smallest.length && result.size() < limit; k++) {
+      int candidate = smallest[k];
+      if (candidate >= from && candidate < to) {
+        continue;
+      }
+      if (inAll(candidate, lists) && containsAll(names[candidate], needles)) {
+        result.add(clients[candidate]);
+      }
+    }
+    return List.copyOf(result);
+  }
+
+  private int lowerBound(String key) {
+    int low = 0;
+    int high = names.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (names[mid].compareTo(key) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static boolean inAll(int candidate, List<int[]> lists) {
+    for (int i = 1; i < lists.size(); i++) {
+      if (Arrays.binarySearch(lists.get(i), candidate) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean containsAll(String name, String[] needles) {
+    for (String needle : needles) {
+      if (!name.contains(needle)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long gram(String text, int start) {
+    return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+  }
+
+  // Lista de posiciones creciente y sin repetidos (un trigrama puede aparecer dos veces en un nombre)
+  private static final class Postings {
+    private int[] items = new int[4];
+    private int size;
+
+    void add(int position) {
+      if (size > 0 && items[size - 1] == position) {
+        return;
+      }
+      if (size == items.length) {
+        items = Arrays.copyOf(items, size * 2);
+      }
+      items[size++] = position;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(items, size);
+    }
+  }
+}
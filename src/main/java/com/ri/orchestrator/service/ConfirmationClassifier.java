@@ -0,0 +1,325 @@
+package com.ri.orchestrator.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ConfirmationClassifier {
+  private static final Map<String, Double> AFFIRMATIVE_WORDS = Map.ofEntries(
+      Map.entry("si", 0.95), Map.entry("sip", 0.95), Map.entry("sisi", 0.95), Map.entry("s", 0.8),
+      Map.entry("claro", 0.95), Map.entry("dale", 0.95), Map.entry("ok", 0.95), Map.entry("okay", 0.95),
+      Map.entry("okey", 0.95), Map.entry("oka", 0.9), Map.entry("oki", 0.9), Map.entry("okis", 0.9),
+      Map.entry("obvio", 0.95), Map.entry("afirmativo", 0.95), Map.entry("correcto", 0.9),
+      Map.entry("exacto", 0.9), Map.entry("perfecto", 0.9), Map.entry("joya", 0.9), Map.entry("genial", 0.85),
+      Map.entry("buenisimo", 0.85), Map.entry("bueno", 0.8), Map.entry("bien", 0.75), Map.entry("mandale", 0.9),
+      Map.entry("metele", 0.9), Map.entry("seguro", 0.85), Map.entry("aja", 0.8), Map.entry("yes", 0.9),
+      Map.entry("yep", 0.9), Map.entry("va", 0.8), Map.entry("vamos", 0.8), Map.entry("acepto", 0.9),
+      Map.entry("confirmo", 0.98), Map.entry("confirmar", 0.98), Map.entry("confirmado", 0.98),
+      Map.entry("confirma", 0.95), Map.entry("confirmamos", 0.98));
+  private static final Map<String, Double> NEGATIVE_WORDS = Map.ofEntries(
+      Map.entry("no", 0.95), Map.entry("nop", 0.95), Map.entry("nope", 0.95), Map.entry("nah", 0.9),
+      Map.entry("n", 0.8), Map.entry("negativo", 0.95), Map.entry("nada", 0.9), Map.entry("ninguno", 0.9),
+      Map.entry("ninguna", 0.9), Map.entry("ningun", 0.9), Map.entry("tampoco", 0.85),
+      Map.entry("nunca", 0.85), Map.entry("cancelar", 0.85), Map.entry("cancelo", 0.85));
+  private static final Map<String, Double> AFFIRMATIVE_PHRASES = Map.ofEntries(
+      Map.entry("no hay problema", 0.95), Map.entry("por supuesto", 0.95), Map.entry("de una", 0.95),
+      Map.entry("obvio que si", 0.98), Map.entry("como no", 0.85), Map.entry("ni hablar", 0.8),
+      Map.entry("esta bien", 0.9), Map.entry("me parece bien", 0.9), Map.entry("si tengo", 0.95),
+      Map.entry("si hay", 0.95), Map.entry("todo bien", 0.85));
+  private static final Map<String, Double> NEGATIVE_PHRASES = Map.ofEntries(
+      Map.entry("no hay", 0.95), Map.entry("no tengo", 0.95), Map.entry("no quiero", 0.95),
+      Map.entry("no gracias", 0.98), Map.entry("para nada", 0.95), Map.entry("ni ahi", 0.9),
+      Map.entry("ni a palos", 0.9), Map.entry("por ahora no", 0.95), Map.entry("mejor no", 0.95),
+      Map.entry("todavia no", 0.9), Map.entry("no hace falta", 0.95), Map.entry("no por ahora", 0.95),
+      Map.entry("sin materiales", 0.9), Map.entry("sin equipos", 0.9), Map.entry("sin extras", 0.9));
+  private static final Set<String> CONFIRMATION_WORDS = Set.of(
+      "confirmo", "confirmar", "confirmado", "confirma", "confirmamos");
+  private static final Set<String> HEDGE_WORDS = Set.of(
+      "pero", "quizas", "quiza", "capaz", "talvez", "depende", "creo", "supongo", "mmm", "eh");
+  private static final Set<String> HEDGE_PHRASES = Set.of("tal vez", "no se", "no estoy seguro", "no sabria");
+  private static final Set<String> NEUTRAL_WORDS = Set.of(
+      "quiero", "queremos", "agregar", "agrego", "cargar", "sumar", "poner", "materiales", "material",
+      "equipos", "equipo", "extras", "extra", "gracias", "por", "favor", "che", "a", "el", "la", "los", "las",
+      "de", "del", "que", "tambien", "algo", "uno", "unos", "una", "mas", "otro", "otra", "hay", "tengo",
+      "eso", "asi", "esta", "cotizacion", "y", "con", "me", "lo", "le", "es", "todo", "ahora", "hola");
+  private static final Map<Integer, Polarity> EMOJIS = Map.ofEntries(
+      Map.entry(0x1F44D, Polarity.AFFIRMATIVE), Map.entry(0x1F44C, Polarity.AFFIRMATIVE),
+      Map.entry(0x2705, Polarity.AFFIRMATIVE), Map.entry(0x2714, Polarity.AFFIRMATIVE),
+      Map.entry(0x1F64C, Polarity.AFFIRMATIVE), Map.entry(0x1F44F, Polarity.AFFIRMATIVE),
+      Map.entry(0x1F642, Polarity.AFFIRMATIVE), Map.entry(0x1F60A, Polarity.AFFIRMATIVE),
+      Map.entry(0x1F44E, Polarity.NEGATIVE), Map.entry(0x274C, Polarity.NEGATIVE),
+      Map.entry(0x1F6AB, Polarity.NEGATIVE), Map.entry(0x2716, Polarity.NEGATIVE),
+      Map.entry(0x1F645, Polarity.NEGATIVE));
+  private static final double EMOJI_SCORE = 0.9;
+  private static final double TYPO_PENALTY = 0.85;
+  private static final double HEDGE_PENALTY = 0.5;
+
+  private final double threshold;
+  private final List<String> phrasesByLength;
+
+  public ConfirmationClassifier(@Value("${assistant.confirmation.llm-threshold:0.75}") double threshold) {
+    this.threshold = threshold;
+    List<String> phrases = new ArrayList<>();
+    phrases.addAll(AFFIRMATIVE_PHRASES.keySet());
+    phrases.addAll(NEGATIVE_PHRASES.keySet());
+    phrases.addAll(HEDGE_PHRASES);
+    phrases.sort(Comparator.comparingInt(String::length).reversed());
+    this.phrasesByLength = List.copyOf(phrases);
+  }
+
+  public Verdict classify(String message) {
+    if (message == null || message.isBlank()) {
+      return Verdict.unknown();
+    }
+    Scores scores = new Scores();
+    String text = extractEmojis(message, scores);
+    text = normalize(text);
+    if (text.isBlank()) {
+      return scores.verdict(threshold);
+    }
+
+    text = " " + text + " ";
+    for (String phrase : phrasesByLength) {
+      String padded = " " + phrase + " ";
+      int index = text.indexOf(padded);
+      if (index < 0) {
+        continue;
+      }
+      if (AFFIRMATIVE_PHRASES.containsKey(phrase)) {
+        scores.add(Polarity.AFFIRMATIVE, AFFIRMATIVE_PHRASES.get(phrase), index == 0);
+      } else if (NEGATIVE_PHRASES.containsKey(phrase)) {
+        scores.add(Polarity.NEGATIVE, NEGATIVE_PHRASES.get(phrase), index == 0);
+      } else {
+        scores.hedged = true;
+      }
+      scores.tokens += phrase.split(" ").length;
+      scores.covered += phrase.split(" ").length;
+      text = text.substring(0, index) + " | " + text.substring(index + padded.length());
+    }
+
+    String[] tokens = text.trim().split("\\s+");
+    for (int i = 0; i < tokens.length; i++) {
+      String token = tokens[i];
+      if (token.isEmpty() || token.equals("|")) {
+        continue;
+      }
+      scores.tokens++;
+      if (matchToken(token, scores, i == 0)) {
+        scores.covered++;
+      } else if (NEUTRAL_WORDS.contains(token)) {
+        scores.covered++;
+      } else if (HEDGE_WORDS.contains(token)) {
+        scores.covered++;
+        scores.hedged = true;
+      }
+    }
+    return scores.verdict(threshold);
+  }
+
+  private boolean matchToken(String token, Scores scores, boolean first) {
+    if (CONFIRMATION_WORDS.contains(token)) {
+      scores.confirmation = true;
+    }
+    if (lookup(token, 1.0, scores, first)) {
+      return true;
+    }
+    String collapsed = collapseRepeats(token);
+    if (!collapsed.equals(token) && lookup(collapsed, 1.0, scores, first)) {
+      return true;
+    }
+    if (collapsed.length() < 4) {
+      return false;
+    }
+    String typo = closestWithinOneEdit(collapsed);
+    if (typo == null) {
+      return false;
+    }
+    if (CONFIRMATION_WORDS.contains(typo)) {
+      scores.confirmation = true;
+    }
+    return lookup(typo, TYPO_PENALTY, scores, first);
+  }
+
+  private boolean lookup(String token, double factor, Scores scores, boolean first) {
+    Double affirmative = AFFIRMATIVE_WORDS.get(token);
+    if (affirmative != null) {
+      scores.add(Polarity.AFFIRMATIVE, affirmative * factor, first);
+      return true;
+    }
+    Double negative = NEGATIVE_WORDS.get(token);
+    if (negative != null) {
+      scores.add(Polarity.NEGATIVE, negative * factor, first);
+      return true;
+    }
+    return false;
+  }
+
+  private String closestWithinOneEdit(String token) {
+    for (String candidate : AFFIRMATIVE_WORDS.keySet()) {
+      if (candidate.length() >= 4 && isWithinOneEdit(token, candidate)) {
+        return candidate;
+      }
+    }
+    for (String candidate : NEGATIVE_WORDS.keySet()) {
+      if (candidate.length() >= 4 && isWithinOneEdit(token, candidate)) {
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  private static boolean isWithinOneEdit(String a, String b) {
+    int la = a.length();
+    int lb = b.length();
+    if (Math.abs(la - lb) > 1) {
+      return false;
+    }
+    if (la == lb) {
+      int first = -1;
+      int diffs = 0;
+      for (int i = 0; i < la; i++) {
+        if (a.charAt(i) != b.charAt(i)) {
+          if (diffs == 0) {
+            first = i;
+          }
+          diffs++;
+        }
+      }
+      if (diffs <= 1) {
+        return true;
+      }
+      // Transposición de letras contiguas ("cnofirmo")
+      return diffs == 2 && first + 1 < la
+          && a.charAt(first) == b.charAt(first + 1)
+          && a.charAt(first + 1) == b.charAt(first)
+          && a.substring(first + 2).equals(b.substring(first + 2));
+    }
+    String shorter = la < lb ? a : b;
+    String longer = la < lb ? b : a;
+    int i = 0;
+    int j = 0;
+    boolean skipped = false;
+    while (i < shorter.length() && j < longer.length()) {
+      if (shorter.charAt(i) == longer.charAt(j)) {
+        i++;
+        j++;
+      } else if (skipped) {
+        return false;
+      } else {
+        skipped = true;
+        j++;
+      }
+    }
+    return true;
+  }
+
+  private static String collapseRepeats(String token) {
+    StringBuilder builder = new StringBuilder(token.length());
+    char previous = 0;
+    for (int i = 0; i < token.length(); i++) {
+      char c = token.charAt(i);
+      if (c != previous) {
+        builder.append(c);
+      }
+      previous = c;
+    }
+    return builder.toString();
+  }
+
+  private static String extractEmojis(String message, Scores scores) {
+    StringBuilder builder = new StringBuilder(message.length());
+    message.codePoints().forEach(codePoint -> {
+      Polarity polarity = EMOJIS.get(codePoint);
+      if (polarity != null) {
+        scores.add(polarity, EMOJI_SCORE, false);
+        builder.append(' ');
+      } else {
+        builder.appendCodePoint(codePoint);
+      }
+    });
+    return builder.toString();
+  }
+
+  private static String normalize(String message) {
+    String lower = message.toLowerCase(Locale.ROOT).trim();
+    String normalized = Normalizer.normalize(lower, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+    return normalized.replaceAll("[^a-z0-9 ]", " ").replaceAll("\\s+", " ").trim();
+  }
+
+  public enum Polarity {
+    AFFIRMATIVE,
+    NEGATIVE,
+    UNKNOWN
+  }
+
+  public record Verdict(Polarity polarity, double confidence, boolean confirmation, boolean confident) {
+    static Verdict unknown() {
+      return new Verdict(Polarity.UNKNOWN, 0, false, false);
+    }
+
+    public boolean isAffirmative() {
+      return confident && polarity == Polarity.AFFIRMATIVE;
+    }
+
+    public boolean isNegative() {
+      return confident && polarity == Polarity.NEGATIVE;
+    }
+
+    public boolean isConfirmation() {
+      return confident && confirmation && polarity == Polarity.AFFIRMATIVE;
+    }
+  }
+
+  private static final class Scores {
+    private final Map<Polarity, Double> best = new HashMap<>();
+    private Polarity leading;
+    private boolean confirmation;
+    private boolean hedged;
+    private int tokens;
+    private int covered;
+
+    void add(Polarity polarity, double score, boolean first) {
+      best.merge(polarity, score, Math::max);
+      if (first && leading == null) {
+        leading = polarity;
+      }
+    }
+
+    Verdict verdict(double threshold) {
+      double affirmative = best.getOrDefault(Polarity.AFFIRMATIVE, 0.0);
+      double negative = best.getOrDefault(Polarity.NEGATIVE, 0.0);
+      if (affirmative == 0 && negative == 0) {
+        return Verdict.unknown();
+      }
+      Polarity polarity;
+      double confidence;
+      if (affirmative > 0 && negative > 0) {
+        // Señales contradictorias: gana la que abre el mensaje, con confianza reducida
+        polarity = leading != null ? leading
+            : affirmative >= negative ? Polarity.AFFIRMATIVE : Polarity.NEGATIVE;
+        confidence = Math.abs(affirmative - negative) * 0.5;
+      } else {
+        polarity = affirmative > 0 ? Polarity.AFFIRMATIVE : Polarity.NEGATIVE;
+        confidence = Math.max(affirmative, negative);
+      }
+      if (tokens > 0) {
+        confidence *= 0.5 + 0.5 * ((double) covered / tokens);
+        if (leading == null) {
+          confidence *= 0.9;
+        }
+      }
+      if (hedged) {
+        confidence *= HEDGE_PENALTY;
+      }
+      return new Verdict(polarity, confidence, confirmation, confidence >= threshold);
+    }
+  }
+}
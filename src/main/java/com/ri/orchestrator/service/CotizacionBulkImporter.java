@@ -0,0 +1,452 @@
+package com.ri.orchestrator.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ri.orchestrator.dto.ClienteSummary;
+import com.ri.orchestrator.dto.CotizacionDraft;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+
+// Carga masiva de cotizaciones (JSONL o CSV). Las filas se leen de a una y como mucho
+// `parallelism` están en curso: si AWS va lento se deja de leer el cuerpo y el cliente espera
+// (backpressure por TCP). Cada resultado se escribe apenas termina, en orden de llegada
+@Service
+public class CotizacionBulkImporter {
+  private static final Logger log = LoggerFactory.getLogger(CotizacionBulkImporter.class);
+  private static final byte[] NEWLINE = {'\n'};
+
+  private final AssistantService assistantService;
+  private final AwsBackendClient awsBackendClient;
+  private final ClientDirectory clientDirectory;
+  private final ObjectMapper objectMapper;
+  private final int parallelism;
+  private final Duration requestTimeout;
+
+  public CotizacionBulkImporter(AssistantService assistantService,
+                                AwsBackendClient awsBackendClient,
+                                ClientDirectory clientDirectory,
+                                ObjectMapper objectMapper,
+                                @Value("${aws.backend.bulk.parallelism:4}") int parallelism,
+                                @Value("${aws.backend.bulk.request-timeout:30s}") Duration requestTimeout) {
+    this.assistantService = assistantService;
+    this.awsBackendClient = awsBackendClient;
+    this.clientDirectory = clientDirectory;
+    this.objectMapper = objectMapper;
+    this.parallelism = Math.max(1, parallelism);
+    this.requestTimeout = requestTimeout;
+  }
+
+  // batchKey (opcional) hace que reenviar el mismo archivo no duplique: cada fila viaja con
+  // Idempotency-Key = batchKey:número de fila
+  public void ingest(InputStream body, boolean csv, String batchKey, OutputStream out) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    RowReader rows = csv ? new CsvRows(reader) : new JsonRows(reader);
+    ResultWriter results = new ResultWriter(out);
+    Semaphore inFlight = new Semaphore(parallelism);
+    long started = System.nanoTime();
+    Row row;
+    boolean readAll = false;
+    try {
+      while (!results.aborted && (row = rows.next()) != null) {
+        inFlight.acquireUninterruptibly();
+        Row current = row;
+        CompletableFuture<Map<String, Object>> result;
+        try {
+          result = process(current, batchKey);
+        } catch (RuntimeException ex) {
+          result = CompletableFuture.completedFuture(failure(current.number, ex));
+        }
+        result.whenComplete((line, ex) -> {
+          try {
+            results.write(ex == null ? line : failure(current.number, ex));
+          } finally {
+            inFlight.release();
+          }
+        });
+      }
+      readAll = true;
+    } finally {
+      // Si la lectura del cuerpo falló (el cliente cortó la subida), no se escribe nada más en
+      // una respuesta que el contenedor ya puede haber cerrado
+      if (!readAll) {
+        results.aborted = true;
+      }
+      // Esperar las filas que siguen en curso antes del resumen (o de propagar el error)
+      inFlight.acquireUninterruptibly(parallelism);
+    }
+    Map<String, Object> summary = new LinkedHashMap<>();
+    summary.put("done", !results.aborted);
+    summary.put("rows", results.rows.get());
+    summary.put("created", results.created.get());
+    summary.put("invalid", results.invalid.get());
+    summary.put("failed", results.failed.get());
+    summary.put("millis", (System.nanoTime() - started) / 1_000_000);
+    results.write(summary);
+    log.info("Cotizacion bulk import: {}", summary);
+  }
+
+  private CompletableFuture<Map<String, Object>> process(Row row, String batchKey) {
+    if (row.error != null) {
+      return CompletableFuture.completedFuture(result(row.number, "invalid", null, row.error));
+    }
+    String key = batchKey == null || batchKey.isBlank() ? null : batchKey.trim() + ":" + row.number;
+    CompletableFuture<Map<String, Object>> created = resolveCliente(row.draft).thenCompose(cliente -> {
+      Map<String, Object> payload = assistantService.buildDraftPayload(row.draft, cliente);
+      return withTimeout(() -> awsBackendClient.createCotizacionAsync(payload, key));
+    });
+    return created.handle((response, ex) -> {
+      if (ex == null) {
+        Object id = response == null ? null : response.getOrDefault("_id", response.get("id"));
+        return result(row.number, "created", id, null);
+      }
+      return failure(row.number, ex);
+    });
+  }
+
+  // Mismo criterio que la conversación: por id, o por nombre si hay una sola coincidencia
+  // (o una sola con el nombre exacto); null es un cliente manual
+  private CompletableFuture<ClienteSummary> resolveCliente(CotizacionDraft draft) {
+    if (draft.clienteId() != null && !draft.clienteId().isBlank()) {
+      return withClienteSucursales(draft.clienteId().trim(), null);
+    }
+    if (draft.cliente() == null || draft.cliente().isBlank()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    String name = draft.cliente().trim();
+    return withTimeout(() -> clientDirectory.searchAsync(name)).thenCompose(matches -> {
+      if (matches == null) {
+        throw new IllegalStateException("AWS client search unavailable");
+      }
+      ClienteSummary match = pick(name, matches);
+      return match.sucursales().isEmpty()
+          ? withClienteSucursales(match.id(), match)
+          : CompletableFuture.completedFuture(match);
+    });
+  }
+
+  private CompletableFuture<ClienteSummary> withClienteSucursales(String clienteId, ClienteSummary fallback) {
+    ClienteSummary local = clientDirectory.find(clienteId);
+    if (local != null) {
+      return CompletableFuture.completedFuture(local);
+    }
+    return withTimeout(() -> awsBackendClient.getUserByIdAsync(clienteId)).thenApply(cliente -> {
+      if (cliente == null && fallback == null) {
+        throw new IllegalArgumentException("Cliente " + clienteId + " not found");
+      }
+      return cliente == null ? fallback : cliente;
+    });
+  }
+
+  private ClienteSummary pick(String name, List<ClienteSummary> matches) {
+    if (matches.size() == 1) {
+      return matches.get(0);
+    }
+    if (matches.isEmpty()) {
+      throw new IllegalArgumentException("No cliente matches '" + name + "'");
+    }
+    String folded = ClientIndex.fold(name);
+    ClienteSummary exact = null;
+    for (ClienteSummary candidate : matches) {
+      if (folded.equals(ClientIndex.fold(candidate.nombre()))) {
+        if (exact != null) {
+          exact = null;
+          break;
+        }
+        exact = candidate;
+      }
+    }
+    if (exact == null) {
+      throw new IllegalArgumentException(matches.size() + " clientes match '" + name + "', use clienteId");
+    }
+    return exact;
+  }
+
+  // Fuera de cualquier turno: cada pedido a AWS tiene su propio plazo
+  private <T> CompletableFuture<T> withTimeout(Supplier<CompletableFuture<T>> call) {
+    return TurnDeadline.after(requestTimeout).call(call);
+  }
+
+  private Map<String, Object> failure(int number, Throwable ex) {
+    Throwable cause = Futures.unwrap(ex);
+    if (cause instanceof IllegalArgumentException) {
+      return result(number, "invalid", null, cause.getMessage());
+    }
+    if (cause instanceof HttpStatusCodeException statusEx) {
+      // 409 con clave de idempotencia: la fila ya se había creado en un envío anterior
+      if (statusEx.getStatusCode().value() == HttpStatus.CONFLICT.value()) {
+        return result(number, "created", null, "already created");
+      }
+      return result(number, "failed", null, "AWS " + statusEx.getStatusCode().value() + ": "
+          + statusEx.getResponseBodyAsString());
+    }
+    return result(number, "failed", null, cause.getMessage());
+  }
+
+  private static Map<String, Object> result(int number, String status, Object id, String error) {
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("row", number);
+    result.put("status", status);
+    if (id != null) {
+      result.put("id", id);
+    }
+    if (error != null) {
+      result.put("error", error);
+    }
+    return result;
+  }
+
+  private CotizacionDraft toDraft(JsonNode node) {
+    if (!node.isObject()) {
+      throw new IllegalArgumentException("Row must be a JSON object");
+    }
+    return new CotizacionDraft(
+        text(node, "clienteId"),
+        text(node, "cliente"),
+        text(node, "sucursal"),
+        text(node, "clienteManual"),
+        text(node, "direccion"),
+        text(node, "trabajo"),
+        text(node, "descripcionTrabajo"),
+        amount(node.get("manoDeObra"), "manoDeObra"),
+        items(node.get("materiales"), "materiales"),
+        items(node.get("equipos"), "equipos"),
+        items(node.get("extras"), "extras"));
+  }
+
+  private static String text(JsonNode node, String field) {
+    JsonNode value = node.get(field);
+    if (value == null || value.isNull()) {
+      return null;
+    }
+    String text = value.asText().trim();
+    return text.isEmpty() ? null : text;
+  }
+
+  private static Double amount(JsonNode value, String field) {
+    if (value == null || value.isNull()) {
+      return null;
+    }
+    if (value.isNumber()) {
+      return value.doubleValue();
+    }
+    String text = value.asText().trim().replace(" ", "").replace("$", "");
+    // "1.500,50" (planillas en español) y "1500.50"
+    if (text.contains(",")) {
+      text = text.replace(".", "").replace(",", ".");
+    }
+    if (text.isEmpty()) {
+      return null;
+    }
+    try {
+      return Double.parseDouble(text);
+    } catch (NumberFormatException ex) {
+      throw new IllegalArgumentException(field + " is not a number: '" + value.asText() + "'");
+    }
+  }
+
+  // Array de {descripcion, monto} o de textos como en el chat; en CSV, textos separados por ';'
+  private static List<CotizacionDraft.Item> items(JsonNode value, String field) {
+    List<CotizacionDraft.Item> items = new ArrayList<>();
+    if (value == null || value.isNull()) {
+      return items;
+    }
+    if (value.isTextual()) {
+      for (String part : value.asText().split(";")) {
+        if (!part.isBlank()) {
+          items.add(new CotizacionDraft.Item(part.trim(), null));
+        }
+      }
+      return items;
+    }
+    if (!value.isArray()) {
+      throw new IllegalArgumentException(field + " must be an array or text");
+    }
+    for (JsonNode item : value) {
+      if (item.isObject()) {
+        items.add(new CotizacionDraft.Item(text(item, "descripcion"), amount(item.get("monto"), field + ".monto")));
+      } else {
+        items.add(new CotizacionDraft.Item(item.asText(), null));
+      }
+    }
+    return items;
+  }
+
+  private record Row(int number, CotizacionDraft draft, String error) {
+  }
+
+  private interface RowReader {
+    // null al terminar el archivo; las filas ilegibles vuelven con error, no cortan la carga
+    Row next() throws IOException;
+  }
+
+  private final class JsonRows implements RowReader {
+    private final BufferedReader reader;
+    private int lineNumber;
+
+    private JsonRows(BufferedReader reader) {
+      this.reader = reader;
+    }
+
+    @Override
+    public Row next() throws IOException {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        if (line.isBlank()) {
+          continue;
+        }
+        try {
+          return new Row(lineNumber, toDraft(objectMapper.readTree(line)), null);
+        } catch (JsonProcessingException ex) {
+          return new Row(lineNumber, null, "Invalid JSON: " + ex.getOriginalMessage());
+        } catch (IllegalArgumentException ex) {
+          return new Row(lineNumber, null, ex.getMessage());
+        }
+      }
+      return null;
+    }
+  }
+
+  // CSV con encabezado (mismos nombres que los campos JSON), comillas dobles y saltos de línea
+  // dentro de comillas. El número de fila es el del registro, sin contar el encabezado
+  private final class CsvRows implements RowReader {
+    private final BufferedReader reader;
+    private List<String> header;
+    private int recordNumber;
+
+    private CsvRows(BufferedReader reader) {
+      this.reader = reader;
+    }
+
+    @Override
+    public Row next() throws IOException {
+      if (header == null) {
+        header = readRecord();
+        if (header == null) {
+          return null;
+        }
+        if (!header.isEmpty() && header.get(0).startsWith("\uFEFF")) {
+          header.set(0, header.get(0).substring(1));
+        }
+      }
+      List<String> cells;
+      do {
+        cells = readRecord();
+        if (cells == null) {
+          return null;
+        }
+      } while (cells.stream().allMatch(String::isBlank));
+      recordNumber++;
+      if (cells.size() > header.size()) {
+        return new Row(recordNumber, null, "Row has " + cells.size() + " cells, header has " + header.size());
+      }
+      ObjectNode node = objectMapper.createObjectNode();
+      for (int i = 0; i < cells.size(); i++) {
+        node.put(header.get(i).trim(), cells.get(i));
+      }
+      try {
+        return new Row(recordNumber, toDraft(node), null);
+      } catch (IllegalArgumentException ex) {
+        return new Row(recordNumber, null, ex.getMessage());
+      }
+    }
+
+    private List<String> readRecord() throws IOException {
+      int c = reader.read();
+      if (c < 0) {
+        return null;
+      }
+      List<String> cells = new ArrayList<>();
+      StringBuilder cell = new StringBuilder();
+      boolean quoted = false;
+      while (c >= 0) {
+        if (quoted) {
+          if (c == '"') {
+            reader.mark(1);
+            int next = reader.read();
+            if (next == '"') {
+              cell.append('"');
+            } else {
+              quoted = false;
+              if (next >= 0) {
+                reader.reset();
+              }
+            }
+          } else {
+            cell.append((char) c);
+          }
+        } else if (c == '"') {
+          quoted = true;
+        } else if (c == ',') {
+          cells.add(cell.toString());
+          cell.setLength(0);
+        } else if (c == '\n') {
+          break;
+        } else if (c != '\r') {
+          cell.append((char) c);
+        }
+        c = reader.read();
+      }
+      cells.add(cell.toString());
+      return cells;
+    }
+  }
+
+  private final class ResultWriter {
+    private final OutputStream out;
+    private final AtomicInteger rows = new AtomicInteger();
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger invalid = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile boolean aborted;
+
+    private ResultWriter(OutputStream out) {
+      this.out = out;
+    }
+
+    synchronized void write(Map<String, Object> line) {
+      Object status = line.get("status");
+      if (status != null) {
+        rows.incrementAndGet();
+        (switch (status.toString()) {
+          case "created" -> created;
+          case "invalid" -> invalid;
+          default -> failed;
+        }).incrementAndGet();
+      }
+      if (aborted) {
+        return;
+      }
+      try {
+        out.write(objectMapper.writeValueAsBytes(line));
+        out.write(NEWLINE);
+        out.flush();
+      } catch (IOException ex) {
+        // El cliente cortó: se deja de leer filas nuevas, las que están en curso terminan igual
+        aborted = true;
+        log.warn("Cotizacion bulk import aborted, client went away: {}", ex.getMessage());
+      }
+    }
+  }
+}
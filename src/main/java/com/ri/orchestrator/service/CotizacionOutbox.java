@@ -0,0 +1,508 @@
+package com.ri.orchestrator.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+
+// Cotizaciones confirmadas pendientes de crear en AWS. Cada una se escribe (con fsync) en un
+// journal append-only antes de responder al usuario; un despachador las envía en tandas con
+// reintentos y marca en el journal las que AWS aceptó. Al arrancar se relee el journal y se
+// reenvía lo que no tenga acuse
+@Component
+public class CotizacionOutbox {
+  private static final Logger log = LoggerFactory.getLogger(CotizacionOutbox.class);
+  private static final TypeReference<Map<String, Object>> RECORD = new TypeReference<>() {};
+  private static final String OP_ADD = "add";
+  private static final String OP_ACK = "ack";
+
+  private final AwsBackendClient awsBackendClient;
+  private final ObjectMapper objectMapper;
+  private final boolean enabled;
+  private final Path file;
+  private final Path deadLetterFile;
+  private final int batchSize;
+  private final Duration requestTimeout;
+  private final long initialBackoffMillis;
+  private final long maxBackoffMillis;
+  private final int compactAfter;
+  // Lock en vez de synchronized: submit() hace fsync en el hilo del pedido y, con hilos virtuales
+  // (JDK 21), esperar un monitor fija el hilo a su carrier
+  private final ReentrantLock lock = new ReentrantLock();
+  // Pendientes en orden de llegada; protegido por el lock, igual que el journal
+  private final Map<String, Entry> pending = new LinkedHashMap<>();
+  private final AtomicLong accepted = new AtomicLong();
+  private final AtomicLong delivered = new AtomicLong();
+  private final AtomicLong retries = new AtomicLong();
+  private final AtomicLong deadLetters = new AtomicLong();
+  private final AtomicLong compactions = new AtomicLong();
+  private final AtomicLong journalFailures = new AtomicLong();
+  private FileChannel journal;
+  private int ackedInJournal;
+  private volatile String lastError;
+
+  public CotizacionOutbox(AwsBackendClient awsBackendClient,
+                          ObjectMapper objectMapper,
+                          @Value("${aws.backend.outbox.enabled:false}") boolean enabled,
+                          @Value("${aws.backend.outbox.file:data/cotizacion-outbox.jsonl}") String file,
+                          @Value("${aws.backend.outbox.batch-size:10}") int batchSize,
+                          @Value("${aws.backend.outbox.request-timeout:30s}") Duration requestTimeout,
+                          @Value("${aws.backend.outbox.initial-backoff:2s}") Duration initialBackoff,
+                          @Value("${aws.backend.outbox.max-backoff:5m}") Duration maxBackoff,
+                          @Value("${aws.backend.outbox.compact-after:100}") int compactAfter) {
+    this.awsBackendClient = awsBackendClient;
+    this.objectMapper = objectMapper;
+    this.enabled = enabled && file != null && !file.isBlank();
+    this.file = this.enabled ? Path.of(file) : null;
+    this.deadLetterFile = this.enabled ? this.file.resolveSibling(this.file.getFileName() + ".dead") : null;
+    this.batchSize = Math.max(1, batchSize);
+    this.requestTimeout = requestTimeout;
+    this.initialBackoffMillis = Math.max(1, initialBackoff.toMillis());
+    this.maxBackoffMillis = Math.max(initialBackoffMillis, maxBackoff.toMillis());
+    this.compactAfter = Math.max(1, compactAfter);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  // true si la cotización quedó guardada en disco y se enviará en segundo plano; false si hay
+  // que crearla en el momento (outbox apagado o journal sin poder escribirse)
+  public boolean submit(Map<String, Object> payload) {
+    lock.lock();
+    try {
+      if (!enabled || journal == null) {
+        return false;
+      }
+      Entry entry = new Entry(UUID.randomUUID().toString(), payload, Instant.now());
+      Map<String, Object> record = new LinkedHashMap<>();
+      record.put("op", OP_ADD);
+      record.put("key", entry.key);
+      record.put("createdAt", entry.createdAt.toString());
+      record.put("payload", payload);
+      try {
+        append(List.of(record));
+      } catch (IOException ex) {
+        journalFailures.incrementAndGet();
+        lastError = ex.getMessage();
+        log.error("Cotizacion outbox journal write failed, creating synchronously", ex);
+        return false;
+      }
+      pending.put(entry.key, entry);
+      accepted.incrementAndGet();
+      log.info("Cotizacion queued in outbox: key={}, pending={}", entry.key, pending.size());
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @PostConstruct
+  void replay() {
+    lock.lock();
+    try {
+      if (!enabled) {
+        return;
+      }
+      try {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+          Files.createDirectories(parent);
+        }
+        if (Files.exists(file)) {
+          read();
+        }
+        // Se reescribe con solo lo pendiente, así el journal arranca compacto
+        compact();
+        log.info("Cotizacion outbox ready: {} pending in {}", pending.size(), file);
+      } catch (IOException ex) {
+        journalFailures.incrementAndGet();
+        lastError = ex.getMessage();
+        closeJournal();
+        log.error("Cotizacion outbox could not open {}, cotizaciones will be created synchronously", file, ex);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @PreDestroy
+  void close() {
+    lock.lock();
+    try {
+      closeJournal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${aws.backend.outbox.poll-interval:PT1S}")
+  public void dispatch() {
+    if (!enabled) {
+      return;
+    }
+    List<Entry> batch = due();
+    if (batch.isEmpty()) {
+      return;
+    }
+    // La tanda sale en paralelo por el cliente no bloqueante; los acuses se escriben juntos
+    List<CompletableFuture<Outcome>> sends = new ArrayList<>(batch.size());
+    for (Entry entry : batch) {
+      sends.add(send(entry));
+    }
+    List<Entry> acked = new ArrayList<>();
+    List<Entry> dead = new ArrayList<>();
+    for (int i = 0; i < batch.size(); i++) {
+      Entry entry = batch.get(i);
+      switch (sends.get(i).join()) {
+        case DELIVERED -> acked.add(entry);
+        case REJECTED -> dead.add(entry);
+        case RETRY -> scheduleRetry(entry);
+      }
+    }
+    record(acked, dead);
+  }
+
+  public Map<String, Object> describe() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("enabled", enabled);
+    lock.lock();
+    try {
+      stats.put("pending", pending.size());
+      Entry oldest = pending.isEmpty() ? null : pending.values().iterator().next();
+      stats.put("oldest_pending_seconds",
+          oldest == null ? 0 : Duration.between(oldest.createdAt, Instant.now()).toSeconds());
+      stats.put("journal_open", journal != null);
+      stats.put("journal_bytes", journalSize());
+    } finally {
+      lock.unlock();
+    }
+    stats.put("accepted", accepted.get());
+    stats.put("delivered", delivered.get());
+    stats.put("retries", retries.get());
+    stats.put("dead_letters", deadLetters.get());
+    stats.put("compactions", compactions.get());
+    stats.put("journal_failures", journalFailures.get());
+    stats.put("last_error", lastError);
+    return stats;
+  }
+
+  private List<Entry> due() {
+    lock.lock();
+    try {
+      long now = System.currentTimeMillis();
+      List<Entry> batch = new ArrayList<>();
+      for (Entry entry : pending.values()) {
+        if (entry.nextAttemptAt <= now && !entry.inFlight) {
+          entry.inFlight = true;
+          batch.add(entry);
+          if (batch.size() >= batchSize) {
+            break;
+          }
+        }
+      }
+      return batch;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private CompletableFuture<Outcome> send(Entry entry) {
+    CompletableFuture<Map<String, Object>> created;
+    try {
+      // Fuera de cualquier turno: cada envío tiene su propio plazo
+      created = TurnDeadline.after(requestTimeout)
+          .call(() -> awsBackendClient.createCotizacionAsync(entry.payload, entry.key));
+    } catch (RuntimeException ex) {
+      created = CompletableFuture.failedFuture(ex);
+    }
+    return created.handle((body, ex) -> {
+      if (ex == null) {
+        return Outcome.DELIVERED;
+      }
+      Throwable cause = Futures.unwrap(ex);
+      entry.error = cause.getMessage();
+      lastError = entry.error;
+      if (cause instanceof HttpStatusCodeException statusEx) {
+        int status = statusEx.getStatusCode().value();
+        // 409: AWS ya tiene una cotización con esta clave (un intento anterior sí llegó)
+        if (status == HttpStatus.CONFLICT.value()) {
+          return Outcome.DELIVERED;
+        }
+        // Solo se descarta lo que AWS rechaza por el contenido. 401/403 vienen de nuestro token
+        // (vencido o mal configurado) y el usuario ya vio SUCCESS: se reintenta hasta que se arregle
+        if (status == HttpStatus.BAD_REQUEST.value() || status == HttpStatus.UNPROCESSABLE_ENTITY.value()) {
+          return Outcome.REJECTED;
+        }
+      }
+      log.warn("Cotizacion outbox delivery failed: key={}, attempt={}, error={}",
+          entry.key, entry.attempts + 1, cause.getMessage());
+      return Outcome.RETRY;
+    });
+  }
+
+  private void scheduleRetry(Entry entry) {
+    lock.lock();
+    try {
+      entry.attempts++;
+      entry.inFlight = false;
+      // Backoff exponencial con jitter para no reenviar todo junto cuando AWS vuelve
+      long backoff = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(entry.attempts - 1, 20));
+      entry.nextAttemptAt = System.currentTimeMillis() + backoff / 2
+          + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+      retries.incrementAndGet();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void record(List<Entry> acked, List<Entry> dead) {
+    lock.lock();
+    try {
+      if (acked.isEmpty() && dead.isEmpty()) {
+        return;
+      }
+      try {
+        if (!dead.isEmpty()) {
+          writeDeadLetters(dead);
+        }
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (Entry entry : acked) {
+          records.add(Map.of("op", OP_ACK, "key", entry.key));
+        }
+        for (Entry entry : dead) {
+          records.add(Map.of("op", OP_ACK, "key", entry.key, "rejected", true));
+        }
+        append(records);
+      } catch (IOException ex) {
+        // Sin acuse en disco se reenviarán al reiniciar; la clave de idempotencia evita duplicados
+        journalFailures.incrementAndGet();
+        lastError = ex.getMessage();
+        log.error("Cotizacion outbox could not record acknowledgements", ex);
+      }
+      for (Entry entry : acked) {
+        pending.remove(entry.key);
+        delivered.incrementAndGet();
+        log.info("Cotizacion delivered from outbox: key={}, attempts={}", entry.key, entry.attempts + 1);
+      }
+      for (Entry entry : dead) {
+        pending.remove(entry.key);
+        deadLetters.incrementAndGet();
+        log.error("Cotizacion rejected by AWS, moved to {}: key={}, error={}", deadLetterFile, entry.key, entry.error);
+      }
+      ackedInJournal += acked.size() + dead.size();
+      if (journal != null && (ackedInJournal >= compactAfter || pending.isEmpty())) {
+        try {
+          compact();
+        } catch (IOException ex) {
+          journalFailures.incrementAndGet();
+          lastError = ex.getMessage();
+          log.warn("Cotizacion outbox compaction failed: {}", ex.getMessage());
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void read() throws IOException {
+    int lineNumber = 0;
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        if (line.isBlank()) {
+          continue;
+        }
+        Map<String, Object> record;
+        try {
+          record = objectMapper.readValue(line, RECORD);
+        } catch (IOException ex) {
+          // Típicamente la última línea, cortada por una caída a mitad de escritura
+          log.warn("Cotizacion outbox skipping unreadable journal line {}: {}", lineNumber, ex.getMessage());
+          continue;
+        }
+        String key = String.valueOf(record.get("key"));
+        if (OP_ADD.equals(record.get("op")) && record.get("payload") instanceof Map<?, ?>) {
+          @SuppressWarnings("unchecked")
+          Map<String, Object> payload = (Map<String, Object>) record.get("payload");
+          Object createdAt = record.get("createdAt");
+          pending.put(key, new Entry(key, payload,
+              createdAt == null ? Instant.now() : Instant.parse(createdAt.toString())));
+        } else if (OP_ACK.equals(record.get("op"))) {
+          pending.remove(key);
+        }
+      }
+    }
+  }
+
+  // Reescribe el journal con solo las entradas pendientes y lo reemplaza de forma atómica
+  private void compact() throws IOException {
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      for (Entry entry : pending.values()) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("op", OP_ADD);
+        record.put("key", entry.key);
+        record.put("createdAt", entry.createdAt.toString());
+        record.put("payload", entry.payload);
+        writeFully(out, line(record));
+      }
+      out.force(true);
+    }
+    closeJournal();
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    forceDirectory();
+    journal = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    ackedInJournal = 0;
+    compactions.incrementAndGet();
+  }
+
+  private void append(List<Map<String, Object>> records) throws IOException {
+    if (journal == null) {
+      throw new IOException("Cotizacion outbox journal is not open");
+    }
+    long size = journal.size();
+    try {
+      for (Map<String, Object> record : records) {
+        writeFully(journal, line(record));
+      }
+      // Un solo fsync por tanda de registros
+      journal.force(false);
+    } catch (IOException ex) {
+      discardTail(size, ex);
+      throw ex;
+    }
+  }
+
+  // Una escritura a medias queda sin salto de línea: lo próximo que se agregue quedaría pegado a
+  // ella y al releer se descartaría la línea entera. Se vuelve al tamaño anterior o, si no se
+  // puede, se reescribe el journal desde lo pendiente
+  private void discardTail(long size, IOException cause) {
+    try {
+      journal.truncate(size);
+      return;
+    } catch (IOException ex) {
+      cause.addSuppressed(ex);
+    }
+    try {
+      compact();
+    } catch (IOException ex) {
+      cause.addSuppressed(ex);
+      // Sin journal confiable las cotizaciones se crean en el momento
+      closeJournal();
+    }
+  }
+
+  private void writeDeadLetters(List<Entry> dead) throws IOException {
+    try (FileChannel out = FileChannel.open(deadLetterFile, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      for (Entry entry : dead) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("key", entry.key);
+        record.put("createdAt", entry.createdAt.toString());
+        record.put("rejectedAt", Instant.now().toString());
+        record.put("error", entry.error);
+        record.put("payload", entry.payload);
+        writeFully(out, line(record));
+      }
+      out.force(false);
+    }
+  }
+
+  private ByteBuffer line(Map<String, Object> record) throws IOException {
+    byte[] json = objectMapper.writeValueAsBytes(record);
+    ByteBuffer buffer = ByteBuffer.allocate(json.length + 1);
+    buffer.put(json).put((byte) '\n').flip();
+    return buffer;
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  // Que el rename sobreviva a un corte de luz (no todos los sistemas permiten abrir el directorio)
+  private void forceDirectory() {
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent == null) {
+      return;
+    }
+    try (FileChannel dir = FileChannel.open(parent, StandardOpenOption.READ)) {
+      dir.force(true);
+    } catch (IOException ex) {
+      log.debug("Cotizacion outbox could not fsync {}: {}", parent, ex.getMessage());
+    }
+  }
+
+  private long journalSize() {
+    try {
+      return journal == null ? 0 : journal.size();
+    } catch (IOException ex) {
+      return -1;
+    }
+  }
+
+  private void closeJournal() {
+    if (journal == null) {
+      return;
+    }
+    try {
+      journal.close();
+    } catch (IOException ex) {
+      log.debug("Cotizacion outbox journal close failed: {}", ex.getMessage());
+    }
+    journal = null;
+  }
+
+  private enum Outcome {
+    DELIVERED,
+    REJECTED,
+    RETRY
+  }
+
+  private static final class Entry {
+    private final String key;
+    private final Map<String, Object> payload;
+    private final Instant createdAt;
+    private int attempts;
+    private long nextAttemptAt;
+    private boolean inFlight;
+    private String error;
+
+    private Entry(String key, Map<String, Object> payload, Instant createdAt) {
+      this.key = key;
+      this.payload = payload;
+      this.createdAt = createdAt;
+    }
+  }
+}
@@ -0,0 +1,266 @@
+package com.ri.orchestrator.service;
+
+import com.ri.orchestrator.dto.ParsedFinancialItem;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.springframework.stereotype.Component;
+
+@Component
+public class FinancialItemParser {
+  private static final Pattern SPLIT_PATTERN = Pattern.compile(
+      "(?<=\\d)(?=[xX*](\\$?\\d))|(?<=\\d[xX*])(?=\\$?\\d)|(?<=\\$)(?=\\d)|(?<=\\d)(?=k\\b)");
+  private static final Pattern NUMBER_PATTERN = Pattern.compile(
+      "^(\\d{1,3}(?:\\.\\d{3})+(?:,\\d+)?|\\d{1,3}(?:,\\d{3})+(?:\\.\\d+)?|\\d+(?:[.,]\\d+)?)$");
+  private static final Map<String, Double> MULTIPLIERS = Map.of(
+      "k", 1_000d, "mil", 1_000d, "luca", 1_000d, "lucas", 1_000d,
+      "millon", 1_000_000d, "millones", 1_000_000d, "palo", 1_000_000d, "palos", 1_000_000d);
+  private static final Set<String> OPERATORS = Set.of("x", "*", "por");
+  private static final Set<String> UNIT_WORDS = Set.of(
+      "unidad", "unidades", "u", "un", "uds", "unid", "pieza", "piezas", "pzas");
+  private static final Set<String> PER_UNIT_MARKERS = Set.of("c/u", "cu", "cada", "c/u.");
+  private static final Set<String> CURRENCY_WORDS = Set.of("$", "pesos", "peso", "ars", "total", "monto");
+  // "Cable 2 x 500": una cantidad chica frente a un precio varias veces mayor no deja dudas
+  private static final double MAX_CLEAR_QUANTITY = 100;
+  private static final double MIN_PRICE_RATIO = 5;
+  private static final Set<String> CONNECTORS = Set.of("de", "a", "por", "x", "*", "en", "=", ":", "-", "uno");
+
+  public ParsedFinancialItem parse(String message) {
+    if (message == null || message.isBlank()) {
+      return null;
+    }
+    List<Token> tokens = tokenize(message);
+    List<Integer> numbers = new ArrayList<>();
+    for (int i = 0; i < tokens.size(); i++) {
+      if (tokens.get(i).value != null) {
+        numbers.add(i);
+      }
+    }
+    if (numbers.isEmpty()) {
+      return null;
+    }
+
+    boolean perUnit = tokens.stream().anyMatch(token -> PER_UNIT_MARKERS.contains(token.lower));
+    double amount;
+    double confidence;
+    int quantity = 1;
+    Roles roles = numbers.size() == 2 ? quantityRoles(tokens, numbers.get(0), numbers.get(1), perUnit) : null;
+    if (numbers.size() == 1) {
+      int index = numbers.get(0);
+      amount = tokens.get(index).value;
+      boolean atEdge = index == 0 || index == lastContentIndex(tokens) || isCurrencyMarked(tokens, index);
+      confidence = atEdge ? 0.95 : 0.8;
+    } else if (roles != null) {
+      quantity = (int) (double) tokens.get(roles.quantity()).value;
+      amount = quantity * tokens.get(roles.price()).value;
+      // Si los dos números podrían ser la cantidad, que confirme la IA
+      confidence = roles.ambiguous() ? 0.6 : 0.9;
+    } else {
+      // Varios números sin relación clara: que decida la IA
+      amount = tokens.get(numbers.get(numbers.size() - 1)).value;
+      confidence = 0.4;
+    }
+
+    String description = describe(tokens, numbers);
+    if (description.isBlank()) {
+      return new ParsedFinancialItem("Item desconocido", amount, Math.min(confidence, 0.5));
+    }
+    if (quantity > 1) {
+      description = description + " x" + quantity;
+    }
+    return new ParsedFinancialItem(description, amount, confidence);
+  }
+
+  // Cuál de los dos números es la cantidad: "3 x 1500", "1500 x 2", "2 unidades a $1500"
+  private Roles quantityRoles(List<Token> tokens, int first, int second, boolean perUnit) {
+    if (!perUnit && !isLinked(tokens, first, second)) {
+      return null;
+    }
+    boolean firstFits = fitsQuantity(tokens, first);
+    boolean secondFits = fitsQuantity(tokens, second);
+    if (!firstFits && !secondFits) {
+      return null;
+    }
+    // Una unidad pegada a un número o una marca de precio en el otro fijan los roles
+    boolean firstIsQuantity = isUnitMarked(tokens, first) || isPriceMarked(tokens, second);
+    boolean secondIsQuantity = isUnitMarked(tokens, second) || isPriceMarked(tokens, first);
+    if (firstFits && firstIsQuantity && !secondIsQuantity) {
+      return new Roles(first, second, false);
+    }
+    if (secondFits && secondIsQuantity && !firstIsQuantity) {
+      return new Roles(second, first, false);
+    }
+    if (!secondFits) {
+      return new Roles(first, second, false);
+    }
+    if (!firstFits) {
+      return new Roles(second, first, false);
+    }
+    double firstValue = tokens.get(first).value;
+    double secondValue = tokens.get(second).value;
+    // Sin marcas, la cantidad es el menor; sólo se duda si los dos valores están cerca
+    boolean secondSmaller = secondValue < firstValue;
+    double smaller = secondSmaller ? secondValue : firstValue;
+    double larger = secondSmaller ? firstValue : secondValue;
+    boolean ambiguous = smaller > MAX_CLEAR_QUANTITY || larger < smaller * MIN_PRICE_RATIO;
+    return secondSmaller ? new Roles(second, first, ambiguous) : new Roles(first, second, ambiguous);
+  }
+
+  private boolean isLinked(List<Token> tokens, int first, int second) {
+    for (int i = first + 1; i < second; i++) {
+      String lower = tokens.get(i).lower;
+      if (OPERATORS.contains(lower) || UNIT_WORDS.contains(lower)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean fitsQuantity(List<Token> tokens, int index) {
+    Token token = tokens.get(index);
+    return token.value == Math.rint(token.value) && token.value >= 1 && token.value <= 10_000
+        && !token.multiplied && !isCurrencyMarked(tokens, index);
+  }
+
+  private boolean isUnitMarked(List<Token> tokens, int index) {
+    return index + 1 < tokens.size() && UNIT_WORDS.contains(tokens.get(index + 1).lower);
+  }
+
+  private boolean isPriceMarked(List<Token> tokens, int index) {
+    if (isCurrencyMarked(tokens, index) || tokens.get(index).multiplied) {
+      return true;
+    }
+    return index > 0 && PER_UNIT_MARKERS.contains(tokens.get(index - 1).lower)
+        || index + 1 < tokens.size() && PER_UNIT_MARKERS.contains(tokens.get(index + 1).lower);
+  }
+
+  private boolean isCurrencyMarked(List<Token> tokens, int index) {
+    if (index > 0 && CURRENCY_WORDS.contains(tokens.get(index - 1).lower)) {
+      return true;
+    }
+    return index + 1 < tokens.size() && CURRENCY_WORDS.contains(tokens.get(index + 1).lower);
+  }
+
+  private int lastContentIndex(List<Token> tokens) {
+    for (int i = tokens.size() - 1; i >= 0; i--) {
+      Token token = tokens.get(i);
+      if (!CURRENCY_WORDS.contains(token.lower) && !PER_UNIT_MARKERS.contains(token.lower)
+          && !token.consumed) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private String describe(List<Token> tokens, List<Integer> numbers) {
+    List<String> words = new ArrayList<>();
+    for (int i = 0; i < tokens.size(); i++) {
+      Token token = tokens.get(i);
+      if (numbers.contains(i) || token.consumed || CURRENCY_WORDS.contains(token.lower)
+          || PER_UNIT_MARKERS.contains(token.lower)) {
+        continue;
+      }
+      if (UNIT_WORDS.contains(token.lower) && (numbers.contains(i - 1) || numbers.contains(i + 1))) {
+        continue;
+      }
+      words.add(token.text);
+    }
+    // Conectores que quedan sueltos al sacar los montos ("de", "a", "x")
+    while (!words.isEmpty() && CONNECTORS.contains(fold(words.get(0)))) {
+      words.remove(0);
+    }
+    while (!words.isEmpty() && CONNECTORS.contains(fold(words.get(words.size() - 1)))) {
+      words.remove(words.size() - 1);
+    }
+    return String.join(" ", words).trim();
+  }
+
+  private List<Token> tokenize(String message) {
+    String spaced = SPLIT_PATTERN.matcher(message.trim()).replaceAll(" ");
+    List<Token> tokens = new ArrayList<>();
+    for (String raw : spaced.split("\\s+")) {
+      if (raw.isEmpty()) {
+        continue;
+      }
+      String text = raw.replaceAll("[,;:!?]+$", "");
+      if (text.isEmpty()) {
+        continue;
+      }
+      String lower = fold(text);
+      Double value = parseNumber(text);
+      Double multiplier = MULTIPLIERS.get(lower);
+      if (multiplier != null && !tokens.isEmpty()) {
+        Token previous = tokens.get(tokens.size() - 1);
+        if (previous.value != null && !previous.multiplied) {
+          previous.value = previous.value * multiplier;
+          previous.multiplied = true;
+          Token marker = new Token(text, lower, null);
+          marker.consumed = true;
+          tokens.add(marker);
+          continue;
+        }
+      }
+      tokens.add(new Token(text, lower, value));
+    }
+    return tokens;
+  }
+
+  private Double parseNumber(String text) {
+    Matcher matcher = NUMBER_PATTERN.matcher(text);
+    if (!matcher.matches()) {
+      return null;
+    }
+    String raw = matcher.group(1);
+    String normalized;
+    int lastDot = raw.lastIndexOf('.');
+    int lastComma = raw.lastIndexOf(',');
+    if (lastDot >= 0 && lastComma >= 0) {
+      // "1.500,50" o "1,500.50": el último separador es el decimal
+      normalized = lastComma > lastDot
+          ? raw.replace(".", "").replace(',', '.')
+          : raw.replace(",", "");
+    } else if (lastDot >= 0 || lastComma >= 0) {
+      char separator = lastDot >= 0 ? '.' : ',';
+      int index = Math.max(lastDot, lastComma);
+      boolean thousands = raw.length() - index - 1 == 3
+          || raw.chars().filter(c -> c == separator).count() > 1;
+      normalized = thousands
+          ? raw.replace(String.valueOf(separator), "")
+          : raw.replace(separator, '.');
+    } else {
+      normalized = raw;
+    }
+    try {
+      return Double.parseDouble(normalized);
+    } catch (NumberFormatException ex) {
+      return null;
+    }
+  }
+
+  private static String fold(String text) {
+    String lower = text.toLowerCase(Locale.ROOT);
+    return Normalizer.normalize(lower, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+  }
+
+  private record Roles(int quantity, int price, boolean ambiguous) {
+  }
+
+  private static final class Token {
+    private final String text;
+    private final String lower;
+    private Double value;
+    private boolean multiplied;
+    private boolean consumed;
+
+    Token(String text, String lower, Double value) {
+      this.text = text;
+      this.lower = lower;
+      this.value = value;
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package com.ri.orchestrator.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiFunction;
+
+final class Futures {
+  private Futures() {
+  }
+
+  // Como handle(), pero cancelar el resultado también cancela el origen (y con él el request HTTP)
+  static <T, R> CompletableFuture<R> handle(CompletableFuture<T> source,
+                                            BiFunction<? super T, Throwable, ? extends R> fn) {
+    CompletableFuture<R> result = source.handle((value, ex) -> fn.apply(value, ex == null ? null : unwrap(ex)));
+    cancelWith(result, source);
+    return result;
+  }
+
+  static void cancelWith(CompletableFuture<?> result, CompletableFuture<?> source) {
+    result.whenComplete((value, ex) -> {
+      if (result.isCancelled()) {
+        source.cancel(true);
+      }
+    });
+  }
+
+  static Throwable unwrap(Throwable ex) {
+    Throwable cause = ex;
+    while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+        && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    return cause;
+  }
+
+  static RuntimeException asRuntime(Throwable ex) {
+    Throwable cause = unwrap(ex);
+    return cause instanceof RuntimeException runtime ? runtime : new CompletionException(cause);
+  }
+}
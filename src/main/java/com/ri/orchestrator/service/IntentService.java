@@ -1,5 +1,6 @@
 package com.ri.orchestrator.service;
 
+import java.util.concurrent.CompletableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -7,6 +8,30 @@ import org.springframework.stereotype.Service;
 @Service
 public class IntentService {
     private static final Logger log = LoggerFactory.getLogger(IntentService.class);
+    // Instrucciones fijas como system: Ollama reutiliza su evaluación entre llamadas y solo procesa el mensaje
+    private static final String CLIENT_TYPE_SYSTEM = """
+            Analiza el mensaje del usuario y clasifica su intención respecto al tipo de cliente.
+
+            Categorías posibles:
+            - EXISTENTE: El usuario quiere usar un cliente que ya existe en la base de datos (ej: "es uno que ya tenemos", "buscar cliente", "existente").
+            - MANUAL: El usuario quiere cargar un cliente nuevo o manual (ej: "es nuevo", "no lo tengo", "manual", "particular", "consumidor final").
+            - DESCONOCIDO: No queda claro qué quiere el usuario.
+
+            Responde ÚNICAMENTE con una de las palabras clave: EXISTENTE, MANUAL, o DESCONOCIDO.
+            """;
+    private static final String AFFIRMATIVE_SYSTEM = """
+            Analiza si el mensaje del usuario es una respuesta AFIRMATIVA (sí, dale, ok, confirmo, etc.) o NEGATIVA (no, nop, nada, etc.).
+
+            Responde ÚNICAMENTE: AFIRMATIVO o NEGATIVO.
+            """;
+    private static final String EXTRACT_NAME_SYSTEM = """
+            Extrae SOLO el nombre de la persona del texto del usuario.
+
+            Reglas:
+            - Responde ÚNICAMENTE con el nombre, sin explicaciones
+            - Si dice "creo que es vicente", responde solo: vicente
+            - Una sola línea, sin puntuación adicional
+            """;
     private final OllamaClient ollamaClient;
 
     public IntentService(OllamaClient ollamaClient) {
@@ -14,119 +39,200 @@ public class IntentService {
     }
 
     public String classifyClientType(String message) {
-        String prompt = """
-                Analiza el siguiente mensaje del usuario y clasifica su intención respecto al tipo de cliente.
-
-                Categorías posibles:
-                - EXISTENTE: El usuario quiere usar un cliente que ya existe en la base de datos (ej: "es uno que ya tenemos", "buscar cliente", "existente").
-                - MANUAL: El usuario quiere cargar un cliente nuevo o manual (ej: "es nuevo", "no lo tengo", "manual", "particular", "consumidor final").
-                - DESCONOCIDO: No queda claro qué quiere el usuario.
-
-                Mensaje: "%s"
-
-                Responde ÚNICAMENTE con una de las palabras clave: EXISTENTE, MANUAL, o DESCONOCIDO.
-                """
-                .formatted(message);
-
-        try {
-            String response = ollamaClient.generate(prompt);
-            if (response == null)
-                return "DESCONOCIDO";
-
-            String normalized = response.trim().toUpperCase();
-            if (normalized.contains("EXISTENTE"))
-                return "EXISTENTE";
-            if (normalized.contains("MANUAL"))
-                return "MANUAL";
-
+        if (TurnDeadline.exhausted()) {
+            log.debug("Turn budget exhausted, skipping AI client type classification");
             return "DESCONOCIDO";
+        }
+        try {
+            return readClientType(ollamaClient.generate(OllamaTask.CLASSIFY, CLIENT_TYPE_SYSTEM, messagePrompt(message)));
         } catch (Exception e) {
             log.error("Error classifying intent with AI", e);
             return "DESCONOCIDO";
         }
     }
 
-    public boolean isAffirmative(String message) {
-        String prompt = """
-                Analiza si el siguiente mensaje es una respuesta AFIRMATIVA (sí, dale, ok, confirmo, etc.) o NEGATIVA (no, nop, nada, etc.).
+    public CompletableFuture<String> classifyClientTypeAsync(String message) {
+        if (TurnDeadline.exhausted()) {
+            log.debug("Turn budget exhausted, skipping AI client type classification");
+            return CompletableFuture.completedFuture("DESCONOCIDO");
+        }
+        return Futures.handle(
+                ollamaClient.generateAsync(OllamaTask.CLASSIFY, CLIENT_TYPE_SYSTEM, messagePrompt(message)),
+                (response, e) -> {
+                    if (e != null) {
+                        log.error("Error classifying intent with AI", e);
+                        return "DESCONOCIDO";
+                    }
+                    return readClientType(response);
+                });
+    }
 
-                Mensaje: "%s"
+    private String readClientType(String response) {
+        if (response == null)
+            return "DESCONOCIDO";
 
-                Responde ÚNICAMENTE: AFIRMATIVO o NEGATIVO.
-                """
-                .formatted(message);
+        String normalized = response.trim().toUpperCase();
+        if (normalized.contains("EXISTENTE"))
+            return "EXISTENTE";
+        if (normalized.contains("MANUAL"))
+            return "MANUAL";
 
+        return "DESCONOCIDO";
+    }
+
+    public boolean isAffirmative(String message) {
+        if (TurnDeadline.exhausted()) {
+            log.debug("Turn budget exhausted, skipping AI affirmative classification");
+            return false;
+        }
         try {
-            String response = ollamaClient.generate(prompt);
-            if (response == null)
-                return false;
-            return response.trim().toUpperCase().contains("AFIRMATIVO");
+            return readAffirmative(ollamaClient.generate(OllamaTask.CLASSIFY, AFFIRMATIVE_SYSTEM, messagePrompt(message)));
         } catch (Exception e) {
             log.error("Error classifying affirmative with AI", e);
             return false;
         }
     }
 
-    public String normalizeWorkType(String message, java.util.Collection<String> validOptions) {
-        String optionsList = String.join(", ", validOptions);
-        String prompt = """
-                El usuario dijo: "%s"
+    public CompletableFuture<Boolean> isAffirmativeAsync(String message) {
+        if (TurnDeadline.exhausted()) {
+            log.debug("Turn budget exhausted, skipping AI affirmative classification");
+            return CompletableFuture.completedFuture(false);
+        }
+        return Futures.handle(
+                ollamaClient.generateAsync(OllamaTask.CLASSIFY, AFFIRMATIVE_SYSTEM, messagePrompt(message)),
+                (response, e) -> {
+                    if (e != null) {
+                        log.error("Error classifying affirmative with AI", e);
+                        return false;
+                    }
+                    return readAffirmative(response);
+                });
+    }
 
-                Opciones válidas: %s
+    private boolean readAffirmative(String response) {
+        return response != null && response.trim().toUpperCase().contains("AFIRMATIVO");
+    }
 
-                ¿A cuál opción se refiere? Responde ÚNICAMENTE con el nombre EXACTO de la opción (copia y pega), o "DESCONOCIDO" si no coincide con ninguna.
+    private String messagePrompt(String message) {
+        return """
+                Mensaje: "%s"
                 """
-                .formatted(message, optionsList);
+                .formatted(message);
+    }
 
-        try {
-            String response = ollamaClient.generate(prompt);
-            if (response == null)
-                return null;
-
-            String cleaned = response.trim();
-            // Verificar si la respuesta está en las opciones válidas
-            for (String option : validOptions) {
-                if (option.equalsIgnoreCase(cleaned)) {
-                    return option;
-                }
-            }
+    public String normalizeWorkType(String message, java.util.Collection<String> validOptions) {
+        if (TurnDeadline.exhausted()) {
+            log.debug("Turn budget exhausted, skipping AI work type normalization");
             return null;
+        }
+        try {
+            String response = ollamaClient.generate(OllamaTask.NORMALIZE_WORK_TYPE, workTypeSystem(validOptions),
+                    workTypePrompt(message));
+            return readWorkType(response, validOptions);
         } catch (Exception e) {
             log.error("Error normalizing work type with AI", e);
             return null;
         }
     }
 
+    public CompletableFuture<String> normalizeWorkTypeAsync(String message, java.util.Collection<String> validOptions) {
+        if (TurnDeadline.exhausted()) {
+            log.debug("Turn budget exhausted, skipping AI work type normalization");
+            return CompletableFuture.completedFuture(null);
+        }
+        return Futures.handle(
+                ollamaClient.generateAsync(OllamaTask.NORMALIZE_WORK_TYPE, workTypeSystem(validOptions),
+                        workTypePrompt(message)),
+                (response, e) -> {
+                    if (e != null) {
+                        log.error("Error normalizing work type with AI", e);
+                        return null;
+                    }
+                    return readWorkType(response, validOptions);
+                });
+    }
+
+    private String workTypeSystem(java.util.Collection<String> validOptions) {
+        return """
+                Opciones válidas: %s
+
+                ¿A cuál opción se refiere el usuario? Responde ÚNICAMENTE con el nombre EXACTO de la opción (copia y pega), o "DESCONOCIDO" si no coincide con ninguna.
+                """
+                .formatted(String.join(", ", validOptions));
+    }
+
+    private String workTypePrompt(String message) {
+        return """
+                El usuario dijo: "%s"
+                """
+                .formatted(message);
+    }
+
+    private String readWorkType(String response, java.util.Collection<String> validOptions) {
+        if (response == null)
+            return null;
+
+        String cleaned = response.trim();
+        // Verificar si la respuesta está en las opciones válidas
+        for (String option : validOptions) {
+            if (option.equalsIgnoreCase(cleaned)) {
+                return option;
+            }
+        }
+        return null;
+    }
+
     public String extractName(String message) {
-        String prompt = """
-                Extrae SOLO el nombre de la persona del siguiente texto: "%s"
+        if (TurnDeadline.exhausted()) {
+            log.debug("Turn budget exhausted, skipping AI name extraction");
+            return message;
+        }
+        try {
+            return readName(ollamaClient.generate(OllamaTask.EXTRACT_NAME, EXTRACT_NAME_SYSTEM, namePrompt(message)),
+                    message);
+        } catch (Exception e) {
+            log.error("Error extracting name with AI", e);
+            return message;
+        }
+    }
 
-                Reglas:
-                - Responde ÚNICAMENTE con el nombre, sin explicaciones
-                - Si dice "creo que es vicente", responde solo: vicente
-                - Una sola línea, sin puntuación adicional
+    public CompletableFuture<String> extractNameAsync(String message) {
+        if (TurnDeadline.exhausted()) {
+            log.debug("Turn budget exhausted, skipping AI name extraction");
+            return CompletableFuture.completedFuture(message);
+        }
+        return Futures.handle(
+                ollamaClient.generateAsync(OllamaTask.EXTRACT_NAME, EXTRACT_NAME_SYSTEM, namePrompt(message)),
+                (response, e) -> {
+                    if (e != null) {
+                        log.error("Error extracting name with AI", e);
+                        return message;
+                    }
+                    return readName(response, message);
+                });
+    }
+
+    private String namePrompt(String message) {
+        return """
+                Texto: "%s"
 
                 Nombre:"""
                 .formatted(message);
+    }
 
-        try {
-            String response = ollamaClient.generate(prompt);
-            if (response == null)
-                return message;
+    private String readName(String response, String message) {
+        if (response == null)
+            return message;
 
-            // Tomar solo la primera línea y limpiar
-            String cleaned = response.trim().split("\\n")[0].trim();
+        // Tomar solo la primera línea y limpiar
+        String cleaned = response.trim().split("\\n")[0].trim();
 
-            // Remover puntuación al final
-            cleaned = cleaned.replaceAll("[.!?;,]+$", "");
+        // Remover puntuación al final
+        cleaned = cleaned.replaceAll("[.!?;,]+$", "");
 
-            if (cleaned.equalsIgnoreCase("DESCONOCIDO") || cleaned.isBlank()) {
-                return message;
-            }
-            return cleaned;
-        } catch (Exception e) {
-            log.error("Error extracting name with AI", e);
+        if (cleaned.equalsIgnoreCase("DESCONOCIDO") || cleaned.isBlank()) {
             return message;
         }
+        return cleaned;
     }
 }
@@ -1,6 +1,7 @@
 package com.ri.orchestrator.service;
 
 import java.util.Map;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClientException;
@@ -11,7 +12,7 @@ public class JobsServiceClient {
   private final RestTemplate restTemplate;
   private final String baseUrl;
 
-  public JobsServiceClient(RestTemplate restTemplate,
+  public JobsServiceClient(@Qualifier("jobsRestTemplate") RestTemplate restTemplate,
                            @Value("${services.jobs.base-url}") String baseUrl) {
     this.restTemplate = restTemplate;
     this.baseUrl = baseUrl;
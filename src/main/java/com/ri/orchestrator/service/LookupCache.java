@@ -0,0 +1,217 @@
+package com.ri.orchestrator.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Cache acotada (LRU) con TTL para lecturas remotas. Los resultados vacíos viven menos
+// (negative-ttl), null nunca se guarda (falla o servicio no disponible) y los pedidos
+// simultáneos por la misma clave comparten una sola llamada remota, que se corta recién cuando
+// la cancelaron todos los que la esperan
+final class LookupCache<V> {
+  private final int maxEntries;
+  private final long ttlNanos;
+  private final long negativeTtlNanos;
+  private final Predicate<V> negative;
+  private final Map<String, Entry<V>> entries;
+  private final ConcurrentHashMap<String, Load<V>> inFlight = new ConcurrentHashMap<>();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong negativeHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong expirations = new AtomicLong();
+
+  LookupCache(int maxEntries, Duration ttl, Duration negativeTtl, Predicate<V> negative) {
+    this.maxEntries = Math.max(0, maxEntries);
+    this.ttlNanos = ttl.toNanos();
+    this.negativeTtlNanos = negativeTtl.toNanos();
+    this.negative = negative;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+        if (size() > LookupCache.this.maxEntries) {
+          evictions.incrementAndGet();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  V get(String key, Supplier<V> loader) {
+    Entry<V> cached = lookup(key);
+    if (cached != null) {
+      return cached.value;
+    }
+    Load<V> mine = new Load<>();
+    Load<V> shared = share(key, mine);
+    if (shared != mine) {
+      coalesced.incrementAndGet();
+      try {
+        return await(shared.result);
+      } finally {
+        shared.release();
+      }
+    }
+    misses.incrementAndGet();
+    try {
+      V value = loader.get();
+      store(key, value);
+      mine.result.complete(value);
+      return value;
+    } catch (RuntimeException ex) {
+      mine.result.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      inFlight.remove(key, mine);
+    }
+  }
+
+  // Cancelar el futuro devuelto sólo corta la llamada remota si nadie más la espera
+  CompletableFuture<V> getAsync(String key, Supplier<CompletableFuture<V>> loader) {
+    Entry<V> cached = lookup(key);
+    if (cached != null) {
+      return CompletableFuture.completedFuture(cached.value);
+    }
+    Load<V> mine = new Load<>();
+    Load<V> shared = share(key, mine);
+    if (shared != mine) {
+      coalesced.incrementAndGet();
+      return shared.waiter();
+    }
+    misses.incrementAndGet();
+    CompletableFuture<V> load;
+    try {
+      load = loader.get();
+    } catch (RuntimeException ex) {
+      load = CompletableFuture.failedFuture(ex);
+    }
+    mine.start(load);
+    load.whenComplete((value, ex) -> {
+      if (ex == null) {
+        store(key, value);
+      }
+      inFlight.remove(key, mine);
+      if (ex == null) {
+        mine.result.complete(value);
+      } else {
+        mine.result.completeExceptionally(Futures.unwrap(ex));
+      }
+    });
+    return mine.waiter();
+  }
+
+  // Se suma a la llamada en curso; si todos la abandonaron (y se está cortando), arranca otra
+  private Load<V> share(String key, Load<V> mine) {
+    return inFlight.compute(key, (k, current) -> current != null && current.join() ? current : mine);
+  }
+
+  synchronized void invalidate(String key) {
+    entries.remove(key);
+  }
+
+  synchronized Map<String, Object> describe() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("size", entries.size());
+    stats.put("max_entries", maxEntries);
+    stats.put("hits", hits.get());
+    stats.put("negative_hits", negativeHits.get());
+    stats.put("misses", misses.get());
+    stats.put("coalesced", coalesced.get());
+    stats.put("evictions", evictions.get());
+    stats.put("expirations", expirations.get());
+    long lookups = hits.get() + negativeHits.get() + misses.get() + coalesced.get();
+    stats.put("hit_ratio", lookups == 0 ? 0.0
+        : Math.round(1000.0 * (lookups - misses.get()) / lookups) / 1000.0);
+    return stats;
+  }
+
+  private synchronized Entry<V> lookup(String key) {
+    Entry<V> entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (System.nanoTime() - entry.expiresAt >= 0) {
+      entries.remove(key);
+      expirations.incrementAndGet();
+      return null;
+    }
+    (entry.negative ? negativeHits : hits).incrementAndGet();
+    return entry;
+  }
+
+  private void store(String key, V value) {
+    if (value == null || maxEntries == 0) {
+      return;
+    }
+    boolean empty = negative.test(value);
+    long ttl = empty ? negativeTtlNanos : ttlNanos;
+    if (ttl <= 0) {
+      return;
+    }
+    synchronized (this) {
+      entries.put(key, new Entry<>(value, empty, System.nanoTime() + ttl));
+    }
+  }
+
+  // Quien espera una llamada ajena no se pasa de su propio presupuesto de turno
+  private V await(CompletableFuture<V> pending) {
+    TurnDeadline deadline = TurnDeadline.current();
+    try {
+      return deadline == null
+          ? pending.get()
+          : pending.get(deadline.remaining().toNanos(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException ex) {
+      throw new TurnBudgetExceededException("Turn budget exhausted waiting for a shared AWS lookup");
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting for a shared AWS lookup", ex);
+    } catch (ExecutionException ex) {
+      throw Futures.asRuntime(ex);
+    }
+  }
+
+  private record Entry<V>(V value, boolean negative, long expiresAt) {
+  }
+
+  private static final class Load<V> {
+    private final CompletableFuture<V> result = new CompletableFuture<>();
+    private CompletableFuture<V> source;
+    private int waiters = 1;
+
+    private synchronized boolean join() {
+      if (waiters == 0) {
+        return false;
+      }
+      waiters++;
+      return true;
+    }
+
+    private synchronized void start(CompletableFuture<V> source) {
+      this.source = source;
+    }
+
+    private synchronized void release() {
+      waiters--;
+      if (waiters == 0 && source != null && !result.isDone()) {
+        source.cancel(true);
+      }
+    }
+
+    // Cada llamador recibe su copia; al terminar (o cancelarla) deja de contar como interesado
+    private CompletableFuture<V> waiter() {
+      CompletableFuture<V> waiter = result.copy();
+      waiter.whenComplete((value, ex) -> release());
+      return waiter;
+    }
+  }
+}
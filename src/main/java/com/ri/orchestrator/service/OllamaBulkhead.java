@@ -0,0 +1,231 @@
+package com.ri.orchestrator.service;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class OllamaBulkhead {
+  private static final Logger log = LoggerFactory.getLogger(OllamaBulkhead.class);
+
+  private final int maxConcurrent;
+  private final int maxQueue;
+  private final Duration shedAfter;
+  private final Duration maxWait;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final PriorityQueue<Waiter> queue = new PriorityQueue<>(
+      Comparator.comparing((Waiter waiter) -> waiter.promptClass).thenComparingLong(waiter -> waiter.sequence));
+  private final Map<PromptClass, Counters> counters = new EnumMap<>(PromptClass.class);
+  private int active;
+  private long sequence;
+
+  public OllamaBulkhead(@Value("${ollama.bulkhead.max-concurrent:1}") int maxConcurrent,
+                        @Value("${ollama.bulkhead.max-queue:32}") int maxQueue,
+                        @Value("${ollama.bulkhead.shed-after:2s}") Duration shedAfter,
+                        @Value("${ollama.bulkhead.max-wait:60s}") Duration maxWait,
+                        OllamaNodePool nodePool) {
+    // max-concurrent es por instancia: con varios nodos el pool reparte los lugares
+    this.maxConcurrent = Math.max(1, maxConcurrent) * nodePool.size();
+    this.maxQueue = Math.max(0, maxQueue);
+    this.shedAfter = shedAfter;
+    this.maxWait = maxWait;
+    for (PromptClass promptClass : PromptClass.values()) {
+      counters.put(promptClass, new Counters());
+    }
+  }
+
+  public Permit acquire(OllamaTask task) {
+    CompletableFuture<Permit> permit = acquireAsync(task, TurnDeadline.current());
+    try {
+      return permit.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      permit.cancel(false);
+      throw new IllegalStateException("Interrupted waiting for Ollama slot");
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      throw new IllegalStateException("Ollama slot wait failed", ex.getCause());
+    }
+  }
+
+  // Cancelar el futuro retira al llamador de la cola (o libera el lugar si ya se le había dado)
+  public CompletableFuture<Permit> acquireAsync(OllamaTask task, TurnDeadline deadline) {
+    PromptClass promptClass = task.promptClass();
+    Counters stats = counters.get(promptClass);
+    Waiter waiter;
+    Waiter victim = null;
+    lock.lock();
+    try {
+      if (active < maxConcurrent && queue.isEmpty()) {
+        active++;
+        stats.admitted.incrementAndGet();
+        return CompletableFuture.completedFuture(new Permit());
+      }
+      if (queue.size() >= maxQueue) {
+        victim = makeRoom(promptClass);
+        if (victim == null) {
+          stats.shed.incrementAndGet();
+          log.info("Ollama bulkhead full, shedding {} call", task);
+          return CompletableFuture.failedFuture(new OllamaOverloadedException("Ollama queue is full"));
+        }
+      }
+      waiter = new Waiter(promptClass, sequence++);
+      queue.add(waiter);
+    } finally {
+      lock.unlock();
+    }
+    // Los futuros se completan fuera del lock: sus continuaciones pueden arrancar un llamado
+    if (victim != null) {
+      victim.permit.completeExceptionally(new OllamaOverloadedException("Evicted"));
+    }
+
+    // Lo cosmético espera poco: si la cola no avanza, se usa el texto de fallback
+    Duration wait = promptClass.isSheddable() ? shedAfter : maxWait;
+    Duration limit = deadline == null ? wait : deadline.limit(wait);
+    CompletableFuture<Permit> result = new CompletableFuture<>();
+    waiter.permit.whenComplete((granted, evicted) -> {
+      if (evicted != null) {
+        stats.shed.incrementAndGet();
+        log.info("Ollama {} call evicted from queue by higher-priority work", task);
+        result.completeExceptionally(new OllamaOverloadedException("Ollama call evicted from queue"));
+        return;
+      }
+      Permit permit = new Permit();
+      if (result.complete(permit)) {
+        stats.admitted.incrementAndGet();
+      } else {
+        // Se le asignó el lugar mientras vencía la espera o lo cancelaban: se devuelve
+        permit.close();
+      }
+    });
+    CompletableFuture.delayedExecutor(limit.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+      if (withdraw(waiter)) {
+        stats.shed.incrementAndGet();
+        log.info("Ollama {} call waited more than {} ms, shedding", task, limit.toMillis());
+        result.completeExceptionally(new OllamaOverloadedException("Ollama queue wait exceeded"));
+      }
+    });
+    result.whenComplete((permit, ex) -> {
+      if (result.isCancelled()) {
+        withdraw(waiter);
+      }
+    });
+    return result;
+  }
+
+  public Map<String, Object> describe() {
+    Map<String, Object> result = new LinkedHashMap<>();
+    lock.lock();
+    try {
+      result.put("active", active);
+      result.put("queued", queue.size());
+    } finally {
+      lock.unlock();
+    }
+    result.put("max_concurrent", maxConcurrent);
+    result.put("max_queue", maxQueue);
+    Map<String, Object> classes = new LinkedHashMap<>();
+    counters.forEach((promptClass, stats) -> classes.put(promptClass.name().toLowerCase(), Map.of(
+        "admitted", stats.admitted.get(),
+        "shed", stats.shed.get())));
+    result.put("classes", classes);
+    return result;
+  }
+
+  // Con la cola llena, un pedido no descartable desplaza al humanize más nuevo
+  private Waiter makeRoom(PromptClass incoming) {
+    if (incoming.isSheddable()) {
+      return null;
+    }
+    Waiter victim = null;
+    for (Waiter candidate : queue) {
+      if (candidate.promptClass.isSheddable()
+          && (victim == null || candidate.sequence > victim.sequence)) {
+        victim = candidate;
+      }
+    }
+    if (victim != null) {
+      queue.remove(victim);
+    }
+    return victim;
+  }
+
+  private boolean withdraw(Waiter waiter) {
+    lock.lock();
+    try {
+      Iterator<Waiter> iterator = queue.iterator();
+      while (iterator.hasNext()) {
+        if (iterator.next() == waiter) {
+          iterator.remove();
+          return true;
+        }
+      }
+      // Ya se le asignó el lugar mientras vencía la espera: lo usa
+      return false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void release() {
+    Waiter next;
+    lock.lock();
+    try {
+      next = queue.poll();
+      if (next == null) {
+        active--;
+      }
+    } finally {
+      lock.unlock();
+    }
+    if (next != null) {
+      next.permit.complete(null);
+    }
+  }
+
+  public final class Permit implements AutoCloseable {
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Permit() {
+    }
+
+    @Override
+    public void close() {
+      if (released.compareAndSet(false, true)) {
+        release();
+      }
+    }
+  }
+
+  private static final class Waiter {
+    private final PromptClass promptClass;
+    private final long sequence;
+    private final CompletableFuture<Void> permit = new CompletableFuture<>();
+
+    Waiter(PromptClass promptClass, long sequence) {
+      this.promptClass = promptClass;
+      this.sequence = sequence;
+    }
+  }
+
+  private static final class Counters {
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+  }
+}
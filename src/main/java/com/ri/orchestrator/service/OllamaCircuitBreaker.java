@@ -0,0 +1,125 @@
+package com.ri.orchestrator.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class OllamaCircuitBreaker {
+  private static final Logger log = LoggerFactory.getLogger(OllamaCircuitBreaker.class);
+
+  private final int failureThreshold;
+  private final Duration openDuration;
+  private State state = State.CLOSED;
+  private int consecutiveFailures;
+  private long openedAt;
+  private boolean trialInFlight;
+
+  public OllamaCircuitBreaker(@Value("${ollama.circuit-breaker.failure-threshold:3}") int failureThreshold,
+                              @Value("${ollama.circuit-breaker.open-duration:30s}") Duration openDuration) {
+    this.failureThreshold = Math.max(1, failureThreshold);
+    this.openDuration = openDuration;
+  }
+
+  public synchronized Call acquire() {
+    if (state == State.OPEN) {
+      if (System.nanoTime() - openedAt < openDuration.toNanos()) {
+        throw new OllamaUnavailableException("Ollama circuit is open");
+      }
+      transition(State.HALF_OPEN);
+    }
+    if (state == State.HALF_OPEN) {
+      // Un solo llamado de prueba; el resto sigue usando el fallback
+      if (trialInFlight) {
+        throw new OllamaUnavailableException("Ollama circuit is half-open");
+      }
+      trialInFlight = true;
+      return new Call(true);
+    }
+    return new Call(false);
+  }
+
+  public synchronized Map<String, Object> describe() {
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("state", state.name());
+    result.put("consecutive_failures", consecutiveFailures);
+    return result;
+  }
+
+  private synchronized void onSuccess(boolean trial) {
+    consecutiveFailures = 0;
+    if (trial) {
+      trialInFlight = false;
+    }
+    if (state != State.CLOSED) {
+      transition(State.CLOSED);
+    }
+  }
+
+  private synchronized void onFailure(boolean trial) {
+    consecutiveFailures++;
+    if (trial) {
+      trialInFlight = false;
+    }
+    if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+      openedAt = System.nanoTime();
+      if (state != State.OPEN) {
+        transition(State.OPEN);
+      }
+    }
+  }
+
+  private synchronized void onAbandon(boolean trial) {
+    if (trial) {
+      trialInFlight = false;
+    }
+  }
+
+  private void transition(State next) {
+    log.info("Ollama circuit {} -> {} (consecutive failures={})", state, next, consecutiveFailures);
+    state = next;
+  }
+
+  public final class Call {
+    private final boolean trial;
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    private Call(boolean trial) {
+      this.trial = trial;
+    }
+
+    public boolean isTrial() {
+      return trial;
+    }
+
+    public void success() {
+      if (finished.compareAndSet(false, true)) {
+        onSuccess(trial);
+      }
+    }
+
+    public void failure() {
+      if (finished.compareAndSet(false, true)) {
+        onFailure(trial);
+      }
+    }
+
+    // Llamado que no llegó a Ollama (descartado en la cola, cliente caído): no cuenta
+    public void abandon() {
+      if (finished.compareAndSet(false, true)) {
+        onAbandon(trial);
+      }
+    }
+  }
+
+  private enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+}
@@ -1,13 +1,49 @@
 package com.ri.orchestrator.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ri.orchestrator.config.OllamaProperties;
+import com.ri.orchestrator.config.PerCallTimeoutRequestFactory;
 import com.ri.orchestrator.dto.OllamaGenerateRequest;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
@@ -16,23 +52,444 @@ public class OllamaClient {
   private static final Logger log = LoggerFactory.getLogger(OllamaClient.class);
 
   private final RestTemplate restTemplate;
-  private final String baseUrl;
+  private final HttpClient httpClient;
   private final String model;
+  private final String keepAlive;
   private final ObjectMapper objectMapper;
+  private final OllamaProperties properties;
+  private final OllamaBulkhead bulkhead;
+  private final OllamaCircuitBreaker circuitBreaker;
+  private final OllamaTimeouts timeouts;
+  private final OllamaNodePool nodePool;
+  private final PromptEvalStats promptEvalStats = new PromptEvalStats();
+  private final AtomicLong fallbackCalls = new AtomicLong();
+  private final ConcurrentHashMap<PromptKey, SharedGeneration> inFlight = new ConcurrentHashMap<>();
 
-  public OllamaClient(RestTemplate restTemplate,
-                      @Value("${ollama.base-url}") String baseUrl,
+  public OllamaClient(@Qualifier("ollamaRestTemplate") RestTemplate restTemplate,
+                      HttpClient httpClient,
                       @Value("${ollama.model}") String model,
-                      ObjectMapper objectMapper) {
+                      @Value("${ollama.keep-alive:}") String keepAlive,
+                      ObjectMapper objectMapper,
+                      OllamaProperties properties,
+                      OllamaBulkhead bulkhead,
+                      OllamaCircuitBreaker circuitBreaker,
+                      OllamaTimeouts timeouts,
+                      OllamaNodePool nodePool) {
     this.restTemplate = restTemplate;
-    this.baseUrl = baseUrl;
+    this.httpClient = httpClient;
     this.model = model;
+    this.keepAlive = keepAlive == null || keepAlive.isBlank() ? null : keepAlive;
     this.objectMapper = objectMapper;
+    this.properties = properties;
+    this.bulkhead = bulkhead;
+    this.circuitBreaker = circuitBreaker;
+    this.timeouts = timeouts;
+    this.nodePool = nodePool;
   }
 
-  public String generate(String prompt) {
-    OllamaGenerateRequest request = new OllamaGenerateRequest(model, prompt, false);
+  public String getModel() {
+    return model;
+  }
+
+  public String modelFor(OllamaTask task) {
+    String taskModel = properties.task(task).getModel();
+    return taskModel == null || taskModel.isBlank() ? model : taskModel;
+  }
+
+  public void preload() {
+    // Sin prompt, Ollama solo carga el modelo en memoria y responde
+    Set<String> models = new LinkedHashSet<>();
+    for (OllamaTask task : OllamaTask.values()) {
+      models.add(modelFor(task));
+    }
+    int loaded = 0;
+    for (String baseUrl : nodePool.urls()) {
+      for (String preloadModel : models) {
+        OllamaGenerateRequest request = new OllamaGenerateRequest(preloadModel, null, false);
+        request.setKeep_alive(keepAlive);
+        try {
+          ResponseEntity<String> response = restTemplate.postForEntity(
+              baseUrl + "/api/generate", request, String.class);
+          if (response.getStatusCode().is2xxSuccessful()) {
+            loaded++;
+          } else {
+            log.warn("Ollama preload of {} on {} returned non-2xx status: {}", preloadModel, baseUrl,
+                response.getStatusCode());
+          }
+        } catch (RestClientException ex) {
+          log.warn("Ollama preload of {} on {} failed: {}", preloadModel, baseUrl, ex.getMessage());
+        }
+      }
+    }
+    if (loaded == 0) {
+      throw new IllegalStateException("Ollama preload failed");
+    }
+  }
+
+  public String generate(OllamaTask task, String prompt) {
+    return generate(task, null, prompt, null);
+  }
+
+  public String generate(OllamaTask task, String system, String prompt) {
+    return generate(task, system, prompt, null);
+  }
 
+  public String generate(OllamaTask task, String system, String prompt, Map<String, Object> schema) {
+    OllamaGenerateRequest request = buildRequest(task, system, prompt, schema, false);
+    if (!properties.task(task).isCoalesce()) {
+      return generateBounded(task, request);
+    }
+    // Prompts idénticos en vuelo comparten una sola generación
+    PromptKey key = new PromptKey(request.getModel(), task, system, prompt, request.getFormat());
+    SharedGeneration mine = new SharedGeneration(TurnDeadline.current());
+    SharedGeneration shared = inFlight.computeIfAbsent(key, k -> mine);
+    if (shared != mine) {
+      if (!shared.join(mine.deadline)) {
+        return generateBounded(task, request);
+      }
+      log.debug("Ollama {} prompt coalesced with in-flight generation", task);
+      try {
+        return await(shared.result);
+      } finally {
+        shared.release();
+      }
+    }
+    try {
+      String response = generateBounded(task, request);
+      mine.result.complete(response);
+      return response;
+    } catch (RuntimeException ex) {
+      mine.result.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      inFlight.remove(key, mine);
+    }
+  }
+
+  public CompletableFuture<String> generateAsync(OllamaTask task, String prompt) {
+    return generateAsync(task, null, prompt, null);
+  }
+
+  public CompletableFuture<String> generateAsync(OllamaTask task, String system, String prompt) {
+    return generateAsync(task, system, prompt, null);
+  }
+
+  // Igual que generate() pero sin ocupar un hilo mientras Ollama genera; cancelar el futuro corta el request
+  // (si es compartido, recién cuando lo cancelaron todos los que lo esperan)
+  public CompletableFuture<String> generateAsync(OllamaTask task, String system, String prompt,
+                                                 Map<String, Object> schema) {
+    OllamaGenerateRequest request = buildRequest(task, system, prompt, schema, false);
+    TurnDeadline deadline = TurnDeadline.current();
+    if (!properties.task(task).isCoalesce()) {
+      return generateBoundedAsync(task, request, deadline);
+    }
+    PromptKey key = new PromptKey(request.getModel(), task, system, prompt, request.getFormat());
+    SharedGeneration mine = new SharedGeneration(deadline);
+    SharedGeneration shared = inFlight.computeIfAbsent(key, k -> mine);
+    if (shared != mine) {
+      if (!shared.join(deadline)) {
+        return generateBoundedAsync(task, request, deadline);
+      }
+      log.debug("Ollama {} prompt coalesced with in-flight generation", task);
+      return shared.waiter(deadline);
+    }
+    CompletableFuture<String> generation = generateBoundedAsync(task, request, deadline);
+    mine.start(generation);
+    generation.whenComplete((response, ex) -> {
+      inFlight.remove(key, mine);
+      if (ex == null) {
+        mine.result.complete(response);
+      } else {
+        mine.result.completeExceptionally(Futures.unwrap(ex));
+      }
+    });
+    return mine.waiter(null);
+  }
+
+  private CompletableFuture<String> generateBoundedAsync(OllamaTask task, OllamaGenerateRequest request,
+                                                         TurnDeadline deadline) {
+    CompletableFuture<String> result = new CompletableFuture<>();
+    AtomicReference<CompletableFuture<String>> attempt = new AtomicReference<>();
+    result.whenComplete((response, ex) -> {
+      CompletableFuture<String> running = attempt.get();
+      if (result.isCancelled() && running != null) {
+        running.cancel(true);
+      }
+    });
+    attemptAsync(task, request, deadline, false, result, attempt);
+    return result;
+  }
+
+  private void attemptAsync(OllamaTask task, OllamaGenerateRequest request, TurnDeadline deadline,
+                            boolean fallback, CompletableFuture<String> result,
+                            AtomicReference<CompletableFuture<String>> attempt) {
+    CompletableFuture<String> running = guardedAsync(task, deadline, fallback,
+        (baseUrl, timeout) -> executeAsync(task, baseUrl, request, timeout));
+    attempt.set(running);
+    if (result.isCancelled()) {
+      running.cancel(true);
+    }
+    running.whenComplete((response, ex) -> {
+      if (ex == null) {
+        result.complete(response);
+        return;
+      }
+      Throwable cause = Futures.unwrap(ex);
+      if (!fallback && !result.isDone() && cause instanceof OllamaModelBusyException busy
+          && switchToFallback(task, request, busy, deadline)) {
+        attemptAsync(task, request, deadline, true, result, attempt);
+        return;
+      }
+      result.completeExceptionally(cause);
+    });
+  }
+
+  private String generateBounded(OllamaTask task, OllamaGenerateRequest request) {
+    try {
+      return guarded(task, false, false, baseUrl -> execute(task, baseUrl, request));
+    } catch (OllamaModelBusyException ex) {
+      if (!switchToFallback(task, request, ex, TurnDeadline.current())) {
+        throw ex;
+      }
+      return guarded(task, true, false, baseUrl -> execute(task, baseUrl, request));
+    }
+  }
+
+  // Los nodos se comparan por clase de prompt y modelo efectivo (principal o de respaldo)
+  private String latencyClass(OllamaTask task, boolean fallback) {
+    String taskModel = fallback ? properties.task(task).getFallbackModel() : modelFor(task);
+    return task.promptClass().name().toLowerCase() + "/" + taskModel;
+  }
+
+  // Un solo reintento con el modelo de respaldo cuando el principal no dio abasto (timeout, 503/429)
+  private boolean switchToFallback(OllamaTask task, OllamaGenerateRequest request, RuntimeException cause,
+                                   TurnDeadline deadline) {
+    String fallback = properties.task(task).getFallbackModel();
+    if (fallback == null || fallback.isBlank() || fallback.equals(request.getModel())
+        || (deadline != null && deadline.expired())) {
+      return false;
+    }
+    log.info("Ollama model {} busy for {} ({}), retrying with {}", request.getModel(), task,
+        cause.getMessage(), fallback);
+    request.setModel(fallback);
+    fallbackCalls.incrementAndGet();
+    return true;
+  }
+
+  // Perfil por tarea: formato, tope de tokens, temperatura, contexto, stop y keep_alive
+  private OllamaGenerateRequest buildRequest(OllamaTask task, String system, String prompt,
+                                             Map<String, Object> schema, boolean stream) {
+    OllamaProperties.TaskSettings settings = properties.task(task);
+    OllamaGenerateRequest request = new OllamaGenerateRequest(modelFor(task), prompt, stream);
+    // Mismo system por familia de prompts: Ollama reutiliza el prefijo ya evaluado (KV cache)
+    // y solo evalúa el texto nuevo
+    request.setSystem(system == null || system.isBlank() ? null : system);
+    String taskKeepAlive = settings.getKeepAlive();
+    request.setKeep_alive(taskKeepAlive == null || taskKeepAlive.isBlank() ? keepAlive : taskKeepAlive);
+    request.setFormat(settings.format(schema));
+    request.setOptions(settings.options());
+    return request;
+  }
+
+  // En un stream el timeout de lectura acota el hueco entre chunks, no la generación entera: su
+  // duración total no es una muestra de latencia ni prueba de que Ollama se haya colgado
+  private String guarded(OllamaTask task, boolean fallback, boolean streaming, Function<String, String> upstream) {
+    if (TurnDeadline.exhausted()) {
+      throw new TurnBudgetExceededException("Turn budget exhausted before Ollama " + task + " call");
+    }
+    // Con el circuito abierto se falla al instante y el llamador usa su fallback
+    OllamaCircuitBreaker.Call call = circuitBreaker.acquire();
+    try (OllamaBulkhead.Permit permit = bulkhead.acquire(task);
+         OllamaNodePool.Lease lease = nodePool.acquire(latencyClass(task, fallback))) {
+      PromptClass promptClass = task.promptClass();
+      // Las muestras de latencia son del modelo principal: el de respaldo usa el tope
+      Duration adaptive = call.isTrial() || fallback ? timeouts.max() : timeouts.timeoutFor(promptClass);
+      Duration timeout = TurnDeadline.cap(adaptive);
+      long start = System.nanoTime();
+      try {
+        String response = PerCallTimeoutRequestFactory.withReadTimeout(timeout,
+            () -> upstream.apply(lease.url()));
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        if (!fallback && !streaming) {
+          timeouts.record(promptClass, elapsed);
+        }
+        lease.success(elapsed);
+        call.success();
+        return response;
+      } catch (TurnBudgetExceededException ex) {
+        // Se cortó porque se acabó el turno (p. ej. a mitad de un stream): no es una falla del nodo
+        log.info("Ollama {} call cut by turn budget: {}", task, ex.getMessage());
+        throw ex;
+      } catch (IllegalStateException ex) {
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        boolean timedOut = streaming ? isReadTimeout(ex) : elapsed.compareTo(timeout) >= 0;
+        if (timedOut) {
+          if (timeout.compareTo(adaptive) < 0) {
+            // Lo cortó el presupuesto del turno, no Ollama: no cuenta para el circuito
+            log.info("Ollama {} call cut by turn budget after {} ms", task, elapsed.toMillis());
+            throw new TurnBudgetExceededException("Turn budget exhausted during Ollama " + task + " call");
+          }
+          // Un timeout también es una muestra: así el percentil se corre si el modelo se puso lento
+          if (!fallback && !streaming) {
+            timeouts.record(promptClass, elapsed);
+          }
+          log.warn("Ollama {} call to {} timed out after {} ms", task, lease.url(), elapsed.toMillis());
+          lease.failure();
+          call.failure();
+          throw new OllamaModelBusyException("Ollama " + task + " call timed out");
+        }
+        lease.failure();
+        call.failure();
+        throw ex;
+      }
+    } finally {
+      call.abandon();
+    }
+  }
+
+  // Mismo recorrido que guarded() (turno, circuito, bulkhead, nodo, timeout adaptativo) sin bloquear
+  private CompletableFuture<String> guardedAsync(OllamaTask task, TurnDeadline deadline, boolean fallback,
+                                                 BiFunction<String, Duration, CompletableFuture<String>> upstream) {
+    if (deadline != null && deadline.expired()) {
+      return CompletableFuture.failedFuture(
+          new TurnBudgetExceededException("Turn budget exhausted before Ollama " + task + " call"));
+    }
+    OllamaCircuitBreaker.Call call;
+    try {
+      call = circuitBreaker.acquire();
+    } catch (RuntimeException ex) {
+      return CompletableFuture.failedFuture(ex);
+    }
+    CompletableFuture<String> result = new CompletableFuture<>();
+    CompletableFuture<OllamaBulkhead.Permit> slot = bulkhead.acquireAsync(task, deadline);
+    AtomicReference<CompletableFuture<String>> exchange = new AtomicReference<>();
+    result.whenComplete((response, ex) -> {
+      if (result.isCancelled()) {
+        slot.cancel(false);
+        CompletableFuture<String> running = exchange.get();
+        if (running != null) {
+          running.cancel(true);
+        }
+      }
+      call.abandon();
+    });
+    slot.whenComplete((permit, slotError) -> {
+      if (slotError != null) {
+        result.completeExceptionally(Futures.unwrap(slotError));
+        return;
+      }
+      if (result.isDone()) {
+        permit.close();
+        return;
+      }
+      OllamaNodePool.Lease lease = nodePool.acquire(latencyClass(task, fallback));
+      PromptClass promptClass = task.promptClass();
+      Duration adaptive = call.isTrial() || fallback ? timeouts.max() : timeouts.timeoutFor(promptClass);
+      Duration timeout = deadline == null ? adaptive : deadline.limit(adaptive);
+      long start = System.nanoTime();
+      CompletableFuture<String> running;
+      try {
+        running = upstream.apply(lease.url(), timeout);
+      } catch (RuntimeException ex) {
+        running = CompletableFuture.failedFuture(ex);
+      }
+      exchange.set(running);
+      if (result.isCancelled()) {
+        running.cancel(true);
+      }
+      running.whenComplete((response, failure) -> {
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        lease.close();
+        permit.close();
+        if (failure == null) {
+          if (!fallback) {
+            timeouts.record(promptClass, elapsed);
+          }
+          lease.success(elapsed);
+          call.success();
+          result.complete(response);
+          return;
+        }
+        Throwable cause = Futures.unwrap(failure);
+        if (cause instanceof CancellationException) {
+          return;
+        }
+        if (cause instanceof HttpTimeoutException) {
+          if (timeout.compareTo(adaptive) < 0) {
+            log.info("Ollama {} call cut by turn budget after {} ms", task, elapsed.toMillis());
+            result.completeExceptionally(
+                new TurnBudgetExceededException("Turn budget exhausted during Ollama " + task + " call"));
+            return;
+          }
+          if (!fallback) {
+            timeouts.record(promptClass, elapsed);
+          }
+          log.warn("Ollama {} call to {} timed out after {} ms", task, lease.url(), elapsed.toMillis());
+          cause = new OllamaModelBusyException("Ollama " + task + " call timed out");
+        } else {
+          log.warn("Ollama {} call to {} failed: {}", task, lease.url(), cause.getMessage());
+        }
+        lease.failure();
+        call.failure();
+        result.completeExceptionally(cause);
+      });
+    });
+    return result;
+  }
+
+  private CompletableFuture<String> executeAsync(OllamaTask task, String baseUrl, OllamaGenerateRequest request,
+                                                 Duration timeout) {
+    byte[] body;
+    try {
+      body = objectMapper.writeValueAsBytes(request);
+    } catch (JsonProcessingException ex) {
+      return CompletableFuture.failedFuture(new IllegalStateException("Ollama request could not be serialized", ex));
+    }
+    HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/api/generate"))
+        // Ollama sirve HTTP plano sin h2c: se evita el intento de upgrade en cada conexión nueva
+        .version(HttpClient.Version.HTTP_1_1)
+        .timeout(timeout)
+        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+        .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+        .build();
+    CompletableFuture<HttpResponse<String>> exchange = httpClient.sendAsync(httpRequest,
+        HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    CompletableFuture<String> result = exchange.thenApply(response -> {
+      int status = response.statusCode();
+      if (status == 503 || status == 429) {
+        throw new OllamaModelBusyException("Ollama is busy");
+      }
+      if (status < 200 || status >= 300) {
+        log.warn("Ollama returned non-2xx status: {}", status);
+        throw new IllegalStateException("Ollama returned non-2xx status");
+      }
+      return readBody(task, response.body());
+    });
+    Futures.cancelWith(result, exchange);
+    return result;
+  }
+
+  private String await(CompletableFuture<String> future) {
+    TurnDeadline deadline = TurnDeadline.current();
+    try {
+      if (deadline == null) {
+        return future.get();
+      }
+      return future.get(deadline.timeout().toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException ex) {
+      throw new TurnBudgetExceededException("Turn budget exhausted waiting for coalesced Ollama call");
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting for Ollama response");
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      throw new IllegalStateException("Ollama request failed", ex.getCause());
+    }
+  }
+
+  private String execute(OllamaTask task, String baseUrl, OllamaGenerateRequest request) {
     try {
       ResponseEntity<String> response = restTemplate.postForEntity(
           baseUrl + "/api/generate", request, String.class);
@@ -42,35 +499,212 @@ public class OllamaClient {
         throw new IllegalStateException("Ollama returned non-2xx status");
       }
 
-      String body = response.getBody();
-      if (body == null || body.isBlank()) {
-        log.warn("Ollama response body is empty");
-        throw new IllegalStateException("Ollama response body is empty");
+      return readBody(task, response.getBody());
+    } catch (RestClientException ex) {
+      log.warn("Ollama request failed: {}", ex.getMessage());
+      if (isBusy(ex)) {
+        throw new OllamaModelBusyException("Ollama is busy");
       }
+      throw new IllegalStateException("Ollama request failed");
+    }
+  }
 
-      String trimmed = body.trim();
-      if (trimmed.startsWith("{")) {
-        try {
-          JsonNode root = objectMapper.readTree(trimmed);
-          JsonNode responseNode = root.get("response");
-          if (responseNode != null && !responseNode.isNull()) {
-            String responseText = responseNode.asText();
-            if (!responseText.isBlank()) {
-              return responseText;
-            }
+  private String readBody(OllamaTask task, String body) {
+    if (body == null || body.isBlank()) {
+      log.warn("Ollama response body is empty");
+      throw new IllegalStateException("Ollama response body is empty");
+    }
+
+    String trimmed = body.trim();
+    if (trimmed.startsWith("{")) {
+      try {
+        JsonNode root = objectMapper.readTree(trimmed);
+        promptEvalStats.record(task, root);
+        JsonNode responseNode = root.get("response");
+        if (responseNode != null && !responseNode.isNull()) {
+          String responseText = responseNode.asText();
+          if (!responseText.isBlank()) {
+            return responseText;
           }
-          log.warn("Ollama JSON response missing 'response' field, returning raw body");
-          return body;
-        } catch (Exception ex) {
-          log.warn("Failed to parse Ollama JSON response, returning raw body");
-          return body;
         }
+        log.warn("Ollama JSON response missing 'response' field, returning raw body");
+        return body;
+      } catch (Exception ex) {
+        log.warn("Failed to parse Ollama JSON response, returning raw body");
+        return body;
       }
+    }
+
+    return body;
+  }
 
-      return body;
+  public String generateStream(OllamaTask task, String system, String prompt, Consumer<String> onToken) {
+    OllamaGenerateRequest request = buildRequest(task, system, prompt, null, true);
+    AtomicBoolean emitted = new AtomicBoolean();
+    Consumer<String> tracked = token -> {
+      emitted.set(true);
+      onToken.accept(token);
+    };
+    try {
+      return guarded(task, false, true, baseUrl -> stream(task, baseUrl, request, tracked));
+    } catch (OllamaModelBusyException ex) {
+      // Si ya se mostró parte del texto no se puede reintentar con otro modelo
+      if (emitted.get() || !switchToFallback(task, request, ex, TurnDeadline.current())) {
+        throw ex;
+      }
+      return guarded(task, true, true, baseUrl -> stream(task, baseUrl, request, onToken));
+    }
+  }
+
+  private String stream(OllamaTask task, String baseUrl, OllamaGenerateRequest request,
+                        Consumer<String> onToken) {
+    try {
+      String result = restTemplate.execute(baseUrl + "/api/generate", HttpMethod.POST,
+          httpRequest -> {
+            httpRequest.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            httpRequest.getBody().write(objectMapper.writeValueAsBytes(request));
+          },
+          httpResponse -> readStream(task, httpResponse, onToken));
+
+      if (result == null || result.isBlank()) {
+        log.warn("Ollama stream produced no tokens");
+        throw new IllegalStateException("Ollama stream produced no tokens");
+      }
+      return result;
     } catch (RestClientException ex) {
-      log.warn("Ollama request failed: {}", ex.getMessage());
-      throw new IllegalStateException("Ollama request failed");
+      log.warn("Ollama stream request failed: {}", ex.getMessage());
+      if (isBusy(ex)) {
+        throw new OllamaModelBusyException("Ollama is busy");
+      }
+      throw new IllegalStateException("Ollama stream request failed", ex);
+    }
+  }
+
+  private static boolean isReadTimeout(Throwable ex) {
+    for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+      if (cause instanceof SocketTimeoutException || cause instanceof HttpTimeoutException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // Ollama responde 503 con la cola llena (OLLAMA_MAX_QUEUE)
+  private boolean isBusy(RestClientException ex) {
+    return ex instanceof HttpStatusCodeException status
+        && (status.getStatusCode().value() == 503 || status.getStatusCode().value() == 429);
+  }
+
+  private String readStream(OllamaTask task, ClientHttpResponse response, Consumer<String> onToken)
+      throws IOException {
+    if (!response.getStatusCode().is2xxSuccessful()) {
+      log.warn("Ollama returned non-2xx status: {}", response.getStatusCode());
+      throw new IllegalStateException("Ollama returned non-2xx status");
+    }
+
+    StringBuilder text = new StringBuilder();
+    BufferedReader reader = new BufferedReader(
+        new InputStreamReader(response.getBody(), StandardCharsets.UTF_8));
+    String line;
+    while ((line = reader.readLine()) != null) {
+      // El timeout de lectura sólo acota el hueco entre chunks: el presupuesto del turno se mira en cada uno
+      if (TurnDeadline.exhausted()) {
+        throw new TurnBudgetExceededException("Turn budget exhausted during Ollama " + task + " stream");
+      }
+      if (line.isBlank()) {
+        continue;
+      }
+      JsonNode chunk = objectMapper.readTree(line);
+      JsonNode error = chunk.get("error");
+      if (error != null && !error.isNull()) {
+        log.warn("Ollama stream error: {}", error.asText());
+        throw new IllegalStateException("Ollama stream error");
+      }
+      String token = chunk.path("response").asText("");
+      if (!token.isEmpty()) {
+        text.append(token);
+        onToken.accept(token);
+      }
+      if (chunk.path("done").asBoolean(false)) {
+        promptEvalStats.record(task, chunk);
+        break;
+      }
+    }
+    return text.toString();
+  }
+
+  public Map<String, Object> describe() {
+    Map<String, Object> result = new LinkedHashMap<>();
+    Map<String, Object> models = new LinkedHashMap<>();
+    for (OllamaTask task : OllamaTask.values()) {
+      String fallback = properties.task(task).getFallbackModel();
+      models.put(task.name().toLowerCase(), fallback == null || fallback.isBlank()
+          ? modelFor(task)
+          : modelFor(task) + " -> " + fallback);
+    }
+    result.put("models", models);
+    result.put("model_fallbacks", fallbackCalls.get());
+    result.put("circuit", circuitBreaker.describe());
+    result.put("timeouts_ms", timeouts.describe());
+    result.put("bulkhead", bulkhead.describe());
+    result.put("nodes", nodePool.describe());
+    result.put("prompt_eval", promptEvalStats.describe());
+    return result;
+  }
+
+  private record PromptKey(String model, OllamaTask task, String system, String prompt, Object format) {
+  }
+
+  // Cada llamador (líder incluido) recibe su propia copia; la generación compartida sólo se corta
+  // cuando cancelaron todos los que la esperan
+  private static final class SharedGeneration {
+    private final CompletableFuture<String> result = new CompletableFuture<>();
+    private final TurnDeadline deadline;
+    private CompletableFuture<String> generation;
+    private int waiters = 1;
+
+    private SharedGeneration(TurnDeadline deadline) {
+      this.deadline = deadline;
+    }
+
+    // Sólo se suma quien no tiene un turno más largo que el líder: si no, heredaría su presupuesto
+    private synchronized boolean join(TurnDeadline follower) {
+      if (waiters == 0 || result.isDone()) {
+        return false;
+      }
+      if (deadline != null && (follower == null || follower.outlasts(deadline))) {
+        return false;
+      }
+      waiters++;
+      return true;
+    }
+
+    private synchronized void start(CompletableFuture<String> generation) {
+      this.generation = generation;
+    }
+
+    private synchronized void release() {
+      waiters--;
+      if (waiters == 0 && generation != null && !result.isDone()) {
+        generation.cancel(true);
+      }
+    }
+
+    private CompletableFuture<String> waiter(TurnDeadline own) {
+      CompletableFuture<String> waiter = result.copy();
+      if (own != null && !waiter.isDone()) {
+        // El seguidor deja de esperar cuando se le acaba su propio turno, no el del líder
+        CompletableFuture.delayedExecutor(own.timeout().toNanos(), TimeUnit.NANOSECONDS).execute(() ->
+            waiter.completeExceptionally(
+                new TurnBudgetExceededException("Turn budget exhausted waiting for coalesced Ollama call")));
+      }
+      AtomicBoolean released = new AtomicBoolean();
+      waiter.whenComplete((response, ex) -> {
+        if (released.compareAndSet(false, true)) {
+          release();
+        }
+      });
+      return waiter;
     }
   }
 }
@@ -0,0 +1,7 @@
+package com.ri.orchestrator.service;
+
+public class OllamaModelBusyException extends IllegalStateException {
+  public OllamaModelBusyException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,232 @@
+package com.ri.orchestrator.service;
+
+import com.ri.orchestrator.config.OllamaProperties;
+import com.ri.orchestrator.config.PerCallTimeoutRequestFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+@Component
+public class OllamaNodePool {
+  private static final Logger log = LoggerFactory.getLogger(OllamaNodePool.class);
+  private static final double LATENCY_WEIGHT = 0.2;
+
+  private final RestTemplate restTemplate;
+  private final List<Node> nodes = new ArrayList<>();
+  private final int failureThreshold;
+  private final Duration ejectDuration;
+  private final double slowRatio;
+  private final Duration healthTimeout;
+  private int cursor;
+
+  public OllamaNodePool(@Qualifier("ollamaRestTemplate") RestTemplate restTemplate,
+                        @Value("${ollama.base-url}") String baseUrl,
+                        OllamaProperties properties,
+                        @Value("${ollama.pool.failure-threshold:2}") int failureThreshold,
+                        @Value("${ollama.pool.eject-duration:30s}") Duration ejectDuration,
+                        @Value("${ollama.pool.slow-ratio:3.0}") double slowRatio,
+                        @Value("${ollama.pool.health-timeout:2s}") Duration healthTimeout) {
+    this.restTemplate = restTemplate;
+    List<String> urls = properties.getNodes();
+    for (String url : urls == null || urls.isEmpty() ? List.of(baseUrl) : urls) {
+      if (url != null && !url.isBlank()) {
+        nodes.add(new Node(url.strip().replaceAll("/+$", "")));
+      }
+    }
+    if (nodes.isEmpty()) {
+      throw new IllegalStateException("No Ollama nodes configured");
+    }
+    this.failureThreshold = Math.max(1, failureThreshold);
+    this.ejectDuration = ejectDuration;
+    this.slowRatio = slowRatio;
+    this.healthTimeout = healthTimeout;
+  }
+
+  public int size() {
+    return nodes.size();
+  }
+
+  public List<String> urls() {
+    return nodes.stream().map(node -> node.url).toList();
+  }
+
+  // Menos pedidos en curso primero; a igualdad, la latencia reciente más baja para la misma
+  // clase de prompt y modelo (un párrafo de HUMANIZE no se compara con un CLASSIFY de una palabra)
+  public synchronized Lease acquire(String latencyClass) {
+    Node chosen = pick(latencyClass, false);
+    if (chosen == null) {
+      // Todos expulsados: se sigue usando el menos cargado y el circuito decide si cortar
+      chosen = pick(latencyClass, true);
+    }
+    chosen.outstanding.incrementAndGet();
+    chosen.requests.incrementAndGet();
+    return new Lease(chosen, latencyClass);
+  }
+
+  @Scheduled(fixedDelayString = "${ollama.pool.health-interval:PT10S}")
+  public void checkHealth() {
+    if (nodes.size() < 2) {
+      // Con una sola instancia no hay a dónde desviar: alcanza con el circuito y el warm-up
+      return;
+    }
+    for (Node node : nodes) {
+      try {
+        PerCallTimeoutRequestFactory.withReadTimeout(healthTimeout,
+            () -> restTemplate.getForEntity(node.url + "/api/version", String.class));
+        onHealthy(node);
+      } catch (Exception ex) {
+        eject(node, "health check failed: " + ex.getMessage());
+      }
+    }
+  }
+
+  public synchronized List<Map<String, Object>> describe() {
+    List<Map<String, Object>> result = new ArrayList<>();
+    for (Node node : nodes) {
+      Map<String, Object> entry = new LinkedHashMap<>();
+      entry.put("url", node.url);
+      entry.put("state", node.ejected ? "EJECTED" : "HEALTHY");
+      entry.put("outstanding", node.outstanding.get());
+      entry.put("requests", node.requests.get());
+      entry.put("failures", node.failures.get());
+      entry.put("ejections", node.ejections.get());
+      Map<String, Long> latency = new LinkedHashMap<>();
+      node.latencyNanos.forEach((latencyClass, nanos) -> latency.put(latencyClass, Math.round(nanos / 1_000_000)));
+      entry.put("latency_ewma_ms", latency);
+      result.add(entry);
+    }
+    return result;
+  }
+
+  private Node pick(String latencyClass, boolean includeEjected) {
+    Node best = null;
+    int start = cursor++;
+    for (int i = 0; i < nodes.size(); i++) {
+      Node node = nodes.get(Math.floorMod(start + i, nodes.size()));
+      if (node.ejected && !includeEjected) {
+        continue;
+      }
+      if (best == null
+          || node.outstanding.get() < best.outstanding.get()
+          || (node.outstanding.get() == best.outstanding.get()
+              && node.latency(latencyClass) < best.latency(latencyClass))) {
+        best = node;
+      }
+    }
+    return best;
+  }
+
+  private synchronized void onSuccess(Node node, String latencyClass, Duration latency) {
+    node.consecutiveFailures = 0;
+    double sample = latency.toNanos();
+    double previous = node.latency(latencyClass);
+    double current = previous == 0 ? sample : previous + LATENCY_WEIGHT * (sample - previous);
+    node.latencyNanos.put(latencyClass, current);
+    // Solo contra otros nodos con muestras de la misma clase
+    double fastest = 0;
+    for (Node other : nodes) {
+      double otherLatency = other.latency(latencyClass);
+      if (other != node && !other.ejected && otherLatency > 0
+          && (fastest == 0 || otherLatency < fastest)) {
+        fastest = otherLatency;
+      }
+    }
+    if (fastest > 0 && current > slowRatio * fastest) {
+      eject(node, String.format("%s latency %d ms vs %d ms on the fastest node", latencyClass,
+          Math.round(current / 1_000_000), Math.round(fastest / 1_000_000)));
+    }
+  }
+
+  private synchronized void onFailure(Node node) {
+    node.failures.incrementAndGet();
+    if (++node.consecutiveFailures >= failureThreshold) {
+      eject(node, node.consecutiveFailures + " consecutive failures");
+    }
+  }
+
+  private synchronized void eject(Node node, String reason) {
+    if (nodes.size() < 2) {
+      return;
+    }
+    node.ejectedUntil = System.nanoTime() + ejectDuration.toNanos();
+    if (!node.ejected) {
+      node.ejected = true;
+      node.ejections.incrementAndGet();
+      log.warn("Ollama node {} ejected: {}", node.url, reason);
+    }
+  }
+
+  // Vuelve a recibir tráfico si responde al health check y ya cumplió la expulsión
+  private synchronized void onHealthy(Node node) {
+    if (node.ejected && System.nanoTime() - node.ejectedUntil >= 0) {
+      node.ejected = false;
+      node.consecutiveFailures = 0;
+      node.latencyNanos.clear();
+      log.info("Ollama node {} readmitted", node.url);
+    }
+  }
+
+  public final class Lease implements AutoCloseable {
+    private final Node node;
+    private final String latencyClass;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Lease(Node node, String latencyClass) {
+      this.node = node;
+      this.latencyClass = latencyClass;
+    }
+
+    public String url() {
+      return node.url;
+    }
+
+    public void success(Duration latency) {
+      onSuccess(node, latencyClass, latency);
+    }
+
+    public void failure() {
+      onFailure(node);
+    }
+
+    @Override
+    public void close() {
+      if (released.compareAndSet(false, true)) {
+        node.outstanding.decrementAndGet();
+      }
+    }
+  }
+
+  private static final class Node {
+    private final String url;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong ejections = new AtomicLong();
+    private volatile boolean ejected;
+    private long ejectedUntil;
+    private int consecutiveFailures;
+    // EWMA por clase de prompt y modelo; protegido por el lock del pool
+    private final Map<String, Double> latencyNanos = new HashMap<>();
+
+    Node(String url) {
+      this.url = url;
+    }
+
+    double latency(String latencyClass) {
+      return latencyNanos.getOrDefault(latencyClass, 0.0);
+    }
+  }
+}
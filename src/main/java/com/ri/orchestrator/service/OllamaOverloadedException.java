@@ -0,0 +1,7 @@
+package com.ri.orchestrator.service;
+
+public class OllamaOverloadedException extends IllegalStateException {
+  public OllamaOverloadedException(String message) {
+    super(message);
+  }
+}
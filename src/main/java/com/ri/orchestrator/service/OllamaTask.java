@@ -0,0 +1,22 @@
+package com.ri.orchestrator.service;
+
+public enum OllamaTask {
+  CLASSIFY(PromptClass.CLASSIFY),
+  EXTRACT_NAME(PromptClass.PARSE),
+  NORMALIZE_WORK_TYPE(PromptClass.PARSE),
+  PARSE_ITEM(PromptClass.PARSE),
+  INTERPRET_TURN(PromptClass.PARSE),
+  HUMANIZE(PromptClass.HUMANIZE),
+  ASK_TRABAJO(PromptClass.HUMANIZE),
+  PROBE(PromptClass.CLASSIFY);
+
+  private final PromptClass promptClass;
+
+  OllamaTask(PromptClass promptClass) {
+    this.promptClass = promptClass;
+  }
+
+  public PromptClass promptClass() {
+    return promptClass;
+  }
+}
@@ -0,0 +1,87 @@
+package com.ri.orchestrator.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class OllamaTimeouts {
+  private final double percentile;
+  private final double multiplier;
+  private final Duration min;
+  private final Duration max;
+  private final int minSamples;
+  private final Map<PromptClass, LatencyWindow> windows = new EnumMap<>(PromptClass.class);
+
+  public OllamaTimeouts(@Value("${ollama.timeouts.percentile:0.99}") double percentile,
+                        @Value("${ollama.timeouts.multiplier:2.0}") double multiplier,
+                        @Value("${ollama.timeouts.min:2s}") Duration min,
+                        @Value("${ollama.timeouts.max:60s}") Duration max,
+                        @Value("${ollama.timeouts.window:100}") int window,
+                        @Value("${ollama.timeouts.min-samples:10}") int minSamples) {
+    this.percentile = percentile;
+    this.multiplier = multiplier;
+    this.min = min;
+    this.max = max;
+    this.minSamples = Math.max(1, minSamples);
+    for (PromptClass promptClass : PromptClass.values()) {
+      windows.put(promptClass, new LatencyWindow(Math.max(this.minSamples, window)));
+    }
+  }
+
+  public Duration max() {
+    return max;
+  }
+
+  public Duration timeoutFor(PromptClass promptClass) {
+    long observed = windows.get(promptClass).percentile(percentile, minSamples);
+    if (observed < 0) {
+      // Sin historial suficiente todavía: el timeout global de siempre
+      return max;
+    }
+    long millis = (long) (observed * multiplier);
+    return Duration.ofMillis(Math.max(min.toMillis(), Math.min(max.toMillis(), millis)));
+  }
+
+  public void record(PromptClass promptClass, Duration latency) {
+    windows.get(promptClass).add(latency.toMillis());
+  }
+
+  public Map<String, Object> describe() {
+    Map<String, Object> result = new LinkedHashMap<>();
+    for (PromptClass promptClass : PromptClass.values()) {
+      result.put(promptClass.name().toLowerCase(), timeoutFor(promptClass).toMillis());
+    }
+    return result;
+  }
+
+  private static final class LatencyWindow {
+    private final long[] samples;
+    private int next;
+    private int count;
+
+    LatencyWindow(int size) {
+      this.samples = new long[size];
+    }
+
+    synchronized void add(long millis) {
+      samples[next] = millis;
+      next = (next + 1) % samples.length;
+      count = Math.min(count + 1, samples.length);
+    }
+
+    synchronized long percentile(double percentile, int minSamples) {
+      if (count < minSamples) {
+        return -1;
+      }
+      long[] sorted = Arrays.copyOf(samples, count);
+      Arrays.sort(sorted);
+      int index = (int) Math.ceil(percentile * count) - 1;
+      return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+  }
+}
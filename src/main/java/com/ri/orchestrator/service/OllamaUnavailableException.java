@@ -0,0 +1,7 @@
+package com.ri.orchestrator.service;
+
+public class OllamaUnavailableException extends IllegalStateException {
+  public OllamaUnavailableException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,114 @@
+package com.ri.orchestrator.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class OllamaWarmup {
+  private static final Logger log = LoggerFactory.getLogger(OllamaWarmup.class);
+  private static final String PROBE_PROMPT = "Responde únicamente: OK";
+
+  private final OllamaClient ollamaClient;
+  private final AssistantService assistantService;
+  private final boolean enabled;
+  private final Duration targetLatency;
+  private final AtomicBoolean warmedUp = new AtomicBoolean();
+  private volatile Status status;
+  private volatile Duration lastLatency;
+  private volatile Instant lastCheck;
+
+  public OllamaWarmup(OllamaClient ollamaClient,
+                      AssistantService assistantService,
+                      @Value("${ollama.warmup.enabled:true}") boolean enabled,
+                      @Value("${ollama.warmup.target-latency:5s}") Duration targetLatency) {
+    this.ollamaClient = ollamaClient;
+    this.assistantService = assistantService;
+    this.enabled = enabled;
+    this.targetLatency = targetLatency;
+    this.status = enabled ? Status.WARMING_UP : Status.READY;
+  }
+
+  @Scheduled(fixedDelayString = "${ollama.warmup.keep-alive-interval:PT4M}")
+  public void keepAlive() {
+    if (!enabled) {
+      return;
+    }
+    if (warmedUp.compareAndSet(false, true)) {
+      warmUp();
+    }
+    probe();
+  }
+
+  public boolean isReady() {
+    return status == Status.READY;
+  }
+
+  public Map<String, Object> describe() {
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("status", status.name());
+    result.put("model", ollamaClient.getModel());
+    result.put("target_latency_ms", targetLatency.toMillis());
+    result.put("last_latency_ms", lastLatency == null ? null : lastLatency.toMillis());
+    result.put("last_check", lastCheck == null ? null : lastCheck.toString());
+    result.putAll(ollamaClient.describe());
+    return result;
+  }
+
+  private void warmUp() {
+    long start = System.nanoTime();
+    try {
+      ollamaClient.preload();
+      log.info("Ollama model {} loaded in {} ms", ollamaClient.getModel(), elapsedMillis(start));
+    } catch (Exception ex) {
+      log.warn("Ollama preload failed, keep-alive will retry: {}", ex.getMessage());
+      warmedUp.set(false);
+      return;
+    }
+    assistantService.warmUp();
+    log.info("Ollama warm-up finished in {} ms", elapsedMillis(start));
+  }
+
+  private void probe() {
+    long start = System.nanoTime();
+    try {
+      ollamaClient.generate(OllamaTask.PROBE, PROBE_PROMPT);
+      Duration latency = Duration.ofNanos(System.nanoTime() - start);
+      lastLatency = latency;
+      Status next = latency.compareTo(targetLatency) <= 0 ? Status.READY : Status.DEGRADED;
+      updateStatus(next);
+    } catch (Exception ex) {
+      lastLatency = null;
+      updateStatus(Status.UNAVAILABLE);
+    } finally {
+      lastCheck = Instant.now();
+    }
+  }
+
+  private void updateStatus(Status next) {
+    Status previous = status;
+    if (previous != next) {
+      log.info("Ollama readiness change: {} -> {} (latency={} ms)", previous, next,
+          lastLatency == null ? null : lastLatency.toMillis());
+      status = next;
+    }
+  }
+
+  private long elapsedMillis(long startNanos) {
+    return Duration.ofNanos(System.nanoTime() - startNanos).toMillis();
+  }
+
+  private enum Status {
+    WARMING_UP,
+    READY,
+    DEGRADED,
+    UNAVAILABLE
+  }
+}
@@ -0,0 +1,184 @@
+package com.ri.orchestrator.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ParaphraseCache {
+  private static final Logger log = LoggerFactory.getLogger(ParaphraseCache.class);
+
+  private final ConcurrentHashMap<String, VariantPool> pools = new ConcurrentHashMap<>();
+  private final TaskExecutor refillExecutor;
+  private final ObjectMapper objectMapper;
+  private final boolean enabled;
+  private final int poolSize;
+  private final long refillBackoffMillis;
+  private final Path file;
+
+  public ParaphraseCache(@Qualifier("paraphraseRefillExecutor") TaskExecutor refillExecutor,
+                         ObjectMapper objectMapper,
+                         @Value("${assistant.paraphrase-cache.enabled:true}") boolean enabled,
+                         @Value("${assistant.paraphrase-cache.pool-size:4}") int poolSize,
+                         @Value("${assistant.paraphrase-cache.refill-backoff:10m}") Duration refillBackoff,
+                         @Value("${assistant.paraphrase-cache.file:}") String file) {
+    this.refillExecutor = refillExecutor;
+    this.objectMapper = objectMapper;
+    this.enabled = enabled;
+    this.poolSize = Math.max(poolSize, 1);
+    this.refillBackoffMillis = refillBackoff.toMillis();
+    this.file = file == null || file.isBlank() ? null : Path.of(file);
+  }
+
+  public String next(String key, Supplier<String> generator) {
+    if (!enabled) {
+      return null;
+    }
+    VariantPool pool = pools.computeIfAbsent(key, k -> new VariantPool());
+    if (pool.variants.size() < poolSize) {
+      scheduleRefill(key, pool, generator);
+    }
+    return pool.next();
+  }
+
+  public void offer(String key, String variant) {
+    if (!enabled || variant == null || variant.isBlank()) {
+      return;
+    }
+    pools.computeIfAbsent(key, k -> new VariantPool()).add(variant.trim(), poolSize);
+  }
+
+  public int size(String key) {
+    VariantPool pool = pools.get(key);
+    return pool == null ? 0 : pool.variants.size();
+  }
+
+  @PostConstruct
+  void load() {
+    if (!enabled || file == null || !Files.exists(file)) {
+      return;
+    }
+    try {
+      Map<String, List<String>> stored = objectMapper.readValue(file.toFile(),
+          new TypeReference<Map<String, List<String>>>() {});
+      stored.forEach((key, variants) -> variants.forEach(variant -> offer(key, variant)));
+      log.info("Paraphrase cache loaded: {} instruction(s) from {}", pools.size(), file);
+    } catch (IOException ex) {
+      log.warn("Paraphrase cache could not be loaded from {}: {}", file, ex.getMessage());
+    }
+  }
+
+  @PreDestroy
+  synchronized void persist() {
+    if (!enabled || file == null) {
+      return;
+    }
+    Map<String, List<String>> snapshot = new LinkedHashMap<>();
+    pools.forEach((key, pool) -> {
+      if (!pool.variants.isEmpty()) {
+        snapshot.put(key, pool.variants);
+      }
+    });
+    try {
+      Path parent = file.toAbsolutePath().getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+      objectMapper.writeValue(tmp.toFile(), snapshot);
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException ex) {
+      log.warn("Paraphrase cache could not be persisted to {}: {}", file, ex.getMessage());
+    }
+  }
+
+  private void scheduleRefill(String key, VariantPool pool, Supplier<String> generator) {
+    if (System.currentTimeMillis() < pool.nextRefillAt || !pool.refilling.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      refillExecutor.execute(() -> refill(key, pool, generator));
+    } catch (TaskRejectedException ex) {
+      pool.refilling.set(false);
+      log.debug("Paraphrase refill rejected for '{}'", key);
+    }
+  }
+
+  private void refill(String key, VariantPool pool, Supplier<String> generator) {
+    boolean added = false;
+    try {
+      int attempts = 0;
+      while (pool.variants.size() < poolSize && attempts < poolSize) {
+        attempts++;
+        String variant = generator.get();
+        if (variant == null || variant.isBlank()) {
+          break;
+        }
+        added |= pool.add(variant.trim(), poolSize);
+      }
+    } catch (Exception ex) {
+      log.warn("Paraphrase refill failed for '{}': {}", key, ex.getMessage());
+    } finally {
+      if (!added) {
+        // El modelo no produjo variantes nuevas: no insistir por un rato
+        pool.nextRefillAt = System.currentTimeMillis() + refillBackoffMillis;
+      }
+      pool.refilling.set(false);
+    }
+    if (added) {
+      persist();
+    }
+  }
+
+  private static final class VariantPool {
+    // Lista inmutable que add() reemplaza entera: next() nunca ve un remove a medio hacer
+    private volatile List<String> variants = List.of();
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private volatile long nextRefillAt;
+
+    String next() {
+      List<String> current = variants;
+      int size = current.size();
+      if (size == 0) {
+        return null;
+      }
+      return current.get(Math.floorMod(cursor.getAndIncrement(), size));
+    }
+
+    synchronized boolean add(String variant, int maxSize) {
+      List<String> current = variants;
+      if (current.contains(variant)) {
+        return false;
+      }
+      List<String> updated = new ArrayList<>(current);
+      if (updated.size() >= maxSize) {
+        updated.remove(0);
+      }
+      updated.add(variant);
+      variants = List.copyOf(updated);
+      return true;
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package com.ri.orchestrator.service;
+
+// El orden define la prioridad en el bulkhead de Ollama: primero lo que la conversación necesita
+public enum PromptClass {
+  PARSE(false),
+  CLASSIFY(false),
+  HUMANIZE(true);
+
+  private final boolean sheddable;
+
+  PromptClass(boolean sheddable) {
+    this.sheddable = sheddable;
+  }
+
+  public boolean isSheddable() {
+    return sheddable;
+  }
+}
@@ -0,0 +1,50 @@
+package com.ri.orchestrator.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lo que Ollama reporta por respuesta: tokens de prompt evaluados y cuánto tardó en evaluarlos
+final class PromptEvalStats {
+  private final Map<OllamaTask, Counters> counters = new EnumMap<>(OllamaTask.class);
+
+  PromptEvalStats() {
+    for (OllamaTask task : OllamaTask.values()) {
+      counters.put(task, new Counters());
+    }
+  }
+
+  void record(OllamaTask task, JsonNode finalChunk) {
+    if (finalChunk == null || !finalChunk.has("prompt_eval_duration")) {
+      return;
+    }
+    Counters stats = counters.get(task);
+    stats.calls.increment();
+    stats.tokens.add(finalChunk.path("prompt_eval_count").asLong(0));
+    stats.nanos.add(finalChunk.path("prompt_eval_duration").asLong(0));
+  }
+
+  Map<String, Object> describe() {
+    Map<String, Object> result = new LinkedHashMap<>();
+    counters.forEach((task, stats) -> {
+      long calls = stats.calls.sum();
+      if (calls == 0) {
+        return;
+      }
+      Map<String, Object> entry = new LinkedHashMap<>();
+      entry.put("calls", calls);
+      entry.put("avg_tokens", stats.tokens.sum() / calls);
+      entry.put("avg_ms", stats.nanos.sum() / calls / 1_000_000.0);
+      result.put(task.name().toLowerCase(), entry);
+    });
+    return result;
+  }
+
+  private static final class Counters {
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+  }
+}
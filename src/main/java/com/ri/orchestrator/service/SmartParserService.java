@@ -3,55 +3,113 @@ package com.ri.orchestrator.service;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ri.orchestrator.dto.ParsedFinancialItem;
+import java.util.concurrent.CompletableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
 public class SmartParserService {
     private static final Logger log = LoggerFactory.getLogger(SmartParserService.class);
+    private static final String PARSE_ITEM_SYSTEM = """
+            Analiza el texto del usuario y extrae la descripción del ítem y el monto TOTAL expresado en dinero.
+            Si hay cálculos matemáticos implícitos (ej: "2 unidades de 500"), calculá el total (1000).
+            Si no hay monto explícito, asumí 0.
+
+            Responde ÚNICAMENTE con un JSON válido con este formato:
+            {
+              "description": "Texto descriptivo limpio",
+              "amount": 123.45
+            }
+            """;
     private final OllamaClient ollamaClient;
     private final ObjectMapper objectMapper;
+    private final FinancialItemParser financialItemParser;
+    private final double llmThreshold;
 
-    public SmartParserService(OllamaClient ollamaClient, ObjectMapper objectMapper) {
+    public SmartParserService(OllamaClient ollamaClient, ObjectMapper objectMapper,
+            FinancialItemParser financialItemParser,
+            @Value("${assistant.item-parser.llm-threshold:0.8}") double llmThreshold) {
         this.ollamaClient = ollamaClient;
         this.objectMapper = objectMapper;
+        this.financialItemParser = financialItemParser;
+        this.llmThreshold = llmThreshold;
     }
 
-    public ParsedFinancialItem parseFinancialItem(String message) {
-        String prompt = """
-                Analiza el siguiente texto y extrae la descripción del ítem y el monto TOTAL expresado en dinero.
-                Si hay cálculos matemáticos implícitos (ej: "2 unidades de 500"), calculá el total (1000).
-                Si no hay monto explícito, asumí 0.
+    public ParsedFinancialItem parseLocally(String message) {
+        return financialItemParser.parse(message);
+    }
 
-                Texto: "%s"
+    public boolean isConfident(ParsedFinancialItem item) {
+        return item != null && item.confidence() >= llmThreshold;
+    }
 
-                Responde ÚNICAMENTE con un JSON válido con este formato:
-                {
-                  "description": "Texto descriptivo limpio",
-                  "amount": 123.45
-                }
-                """.formatted(message);
+    public ParsedFinancialItem parseFinancialItem(String message) {
+        // Formas comunes ("Cable 2mm 1500", "2 x 500") se resuelven sin IA
+        ParsedFinancialItem local = financialItemParser.parse(message);
+        if (isConfident(local)) {
+            return local;
+        }
+        if (TurnDeadline.exhausted()) {
+            // Sin presupuesto para la IA, mejor la lectura local que nada
+            log.debug("Turn budget exhausted, skipping AI item parsing");
+            return local;
+        }
 
         try {
-            String response = ollamaClient.generate(prompt);
-            if (response == null)
-                return null;
-
-            // Extract JSON logic in case Ollama wraps it in markdown code blocks
-            String json = extractJson(response);
-            JsonNode root = objectMapper.readTree(json);
-
-            String description = root.path("description").asText("Item desconocido");
-            double amount = root.path("amount").asDouble(0.0);
-
-            return new ParsedFinancialItem(description, amount);
+            return readItem(ollamaClient.generate(OllamaTask.PARSE_ITEM, PARSE_ITEM_SYSTEM, itemPrompt(message)));
         } catch (Exception e) {
             log.error("Error parsing financial item with AI", e);
             return null;
         }
     }
 
+    public CompletableFuture<ParsedFinancialItem> parseFinancialItemAsync(String message) {
+        ParsedFinancialItem local = financialItemParser.parse(message);
+        if (isConfident(local)) {
+            return CompletableFuture.completedFuture(local);
+        }
+        if (TurnDeadline.exhausted()) {
+            log.debug("Turn budget exhausted, skipping AI item parsing");
+            return CompletableFuture.completedFuture(local);
+        }
+        return Futures.handle(
+                ollamaClient.generateAsync(OllamaTask.PARSE_ITEM, PARSE_ITEM_SYSTEM, itemPrompt(message)),
+                (response, e) -> {
+                    if (e != null) {
+                        log.error("Error parsing financial item with AI", e);
+                        return null;
+                    }
+                    try {
+                        return readItem(response);
+                    } catch (Exception ex) {
+                        log.error("Error parsing financial item with AI", ex);
+                        return null;
+                    }
+                });
+    }
+
+    private String itemPrompt(String message) {
+        return """
+                Texto: "%s"
+                """.formatted(message);
+    }
+
+    private ParsedFinancialItem readItem(String response) throws Exception {
+        if (response == null)
+            return null;
+
+        // Extract JSON logic in case Ollama wraps it in markdown code blocks
+        String json = extractJson(response);
+        JsonNode root = objectMapper.readTree(json);
+
+        String description = root.path("description").asText("Item desconocido");
+        double amount = root.path("amount").asDouble(0.0);
+
+        return new ParsedFinancialItem(description, amount);
+    }
+
     private String extractJson(String text) {
         int start = text.indexOf("{");
         int end = text.lastIndexOf("}");
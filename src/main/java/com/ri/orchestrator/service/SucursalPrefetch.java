@@ -0,0 +1,79 @@
+package com.ri.orchestrator.service;
+
+import com.ri.orchestrator.dto.SucursalSummary;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+// Sucursales pedidas por adelantado para cada cliente de una lista de coincidencias, mientras
+// el usuario elige. Al elegir se usa la del cliente elegido y se cancelan las demás; si nadie
+// elige, todas se cancelan solas al vencer el ttl
+final class SucursalPrefetch {
+  private final Map<String, CompletableFuture<List<SucursalSummary>>> pending = new LinkedHashMap<>();
+
+  private SucursalPrefetch() {
+  }
+
+  static SucursalPrefetch start(List<String> clienteIds, Duration ttl,
+                                Function<String, CompletableFuture<List<SucursalSummary>>> loader) {
+    SucursalPrefetch prefetch = new SucursalPrefetch();
+    for (String id : clienteIds) {
+      if (id != null && !prefetch.pending.containsKey(id)) {
+        CompletableFuture<List<SucursalSummary>> load;
+        try {
+          load = loader.apply(id);
+        } catch (RuntimeException ex) {
+          load = CompletableFuture.failedFuture(ex);
+        }
+        prefetch.pending.put(id, load);
+      }
+    }
+    CompletableFuture.delayedExecutor(ttl.toMillis(), TimeUnit.MILLISECONDS).execute(prefetch::cancel);
+    return prefetch;
+  }
+
+  // Resultado para el cliente elegido (esperando a lo sumo maxWait si todavía está en vuelo);
+  // null si no hay nada útil y hay que ir a buscarlo. Las demás se cancelan
+  List<SucursalSummary> take(String clienteId, Duration maxWait) {
+    CompletableFuture<List<SucursalSummary>> chosen;
+    synchronized (this) {
+      chosen = pending.remove(clienteId);
+    }
+    cancel();
+    if (chosen == null) {
+      return null;
+    }
+    try {
+      List<SucursalSummary> sucursales = chosen.get(Math.max(0, maxWait.toNanos()), TimeUnit.NANOSECONDS);
+      return sucursales == null || sucursales.isEmpty() ? null : sucursales;
+    } catch (TimeoutException ex) {
+      chosen.cancel(true);
+      return null;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException | RuntimeException ex) {
+      return null;
+    }
+  }
+
+  void cancel() {
+    List<CompletableFuture<List<SucursalSummary>>> rest;
+    synchronized (this) {
+      rest = new ArrayList<>(pending.values());
+      pending.clear();
+    }
+    rest.forEach(future -> future.cancel(true));
+  }
+
+  synchronized int size() {
+    return pending.size();
+  }
+}
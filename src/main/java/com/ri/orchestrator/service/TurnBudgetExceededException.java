@@ -0,0 +1,7 @@
+package com.ri.orchestrator.service;
+
+public class TurnBudgetExceededException extends IllegalStateException {
+  public TurnBudgetExceededException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,82 @@
+package com.ri.orchestrator.service;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+public final class TurnDeadline {
+  private static final ThreadLocal<TurnDeadline> CURRENT = new ThreadLocal<>();
+  private static final Duration MIN_TIMEOUT = Duration.ofMillis(1);
+
+  private final long deadlineNanos;
+
+  private TurnDeadline(long deadlineNanos) {
+    this.deadlineNanos = deadlineNanos;
+  }
+
+  public static TurnDeadline after(Duration budget) {
+    return new TurnDeadline(System.nanoTime() + budget.toNanos());
+  }
+
+  public static TurnDeadline current() {
+    return CURRENT.get();
+  }
+
+  public static boolean exhausted() {
+    TurnDeadline deadline = CURRENT.get();
+    return deadline != null && deadline.expired();
+  }
+
+  // Recorta un timeout al presupuesto que le queda al turno; nunca devuelve 0 (sería "sin límite")
+  public static Duration cap(Duration timeout) {
+    TurnDeadline deadline = CURRENT.get();
+    return deadline == null ? timeout : deadline.limit(timeout);
+  }
+
+  public static Runnable propagate(Runnable task) {
+    TurnDeadline deadline = CURRENT.get();
+    if (deadline == null) {
+      return task;
+    }
+    return () -> deadline.call(() -> {
+      task.run();
+      return null;
+    });
+  }
+
+  public <T> T call(Supplier<T> action) {
+    TurnDeadline previous = CURRENT.get();
+    CURRENT.set(this);
+    try {
+      return action.get();
+    } finally {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    }
+  }
+
+  public Duration remaining() {
+    long nanos = deadlineNanos - System.nanoTime();
+    return nanos <= 0 ? Duration.ZERO : Duration.ofNanos(nanos);
+  }
+
+  public Duration timeout() {
+    Duration remaining = remaining();
+    return remaining.compareTo(MIN_TIMEOUT) < 0 ? MIN_TIMEOUT : remaining;
+  }
+
+  public Duration limit(Duration timeout) {
+    Duration remaining = timeout();
+    return remaining.compareTo(timeout) < 0 ? remaining : timeout;
+  }
+
+  public boolean outlasts(TurnDeadline other) {
+    return deadlineNanos - other.deadlineNanos > 0;
+  }
+
+  public boolean expired() {
+    return deadlineNanos - System.nanoTime() <= 0;
+  }
+}
@@ -0,0 +1,249 @@
+package com.ri.orchestrator.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ri.orchestrator.dto.TurnInterpretation;
+import com.ri.orchestrator.model.ConversationState;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+@Service
+public class TurnInterpreter {
+  private static final Logger log = LoggerFactory.getLogger(TurnInterpreter.class);
+  private static final String UNKNOWN = "DESCONOCIDO";
+
+  private static final Field INTENT = Field.choice("intent",
+      "EXISTENTE si quiere usar un cliente que ya existe (\"es uno que ya tenemos\", \"buscar cliente\"); "
+          + "MANUAL si es un cliente nuevo o particular (\"es nuevo\", \"consumidor final\"); "
+          + "DESCONOCIDO si no queda claro.",
+      List.of("EXISTENTE", "MANUAL", UNKNOWN));
+  private static final Field NAME = Field.text("name",
+      "solo el nombre de la persona o empresa mencionada (\"creo que es vicente\" -> \"vicente\"), o null.");
+  private static final Field AFFIRMATIVE = Field.flag("affirmative",
+      "true si el mensaje es una respuesta afirmativa (sí, dale, ok, confirmo).");
+  private static final Field NEGATIVE = Field.flag("negative",
+      "true si el mensaje es una respuesta negativa (no, nop, nada).");
+  private static final Field FINISH = Field.flag("finish",
+      "true si el usuario quiere terminar de cargar ítems (\"listo\", \"nada más\", \"eso es todo\").");
+  private static final Field DESCRIPTION = Field.text("description",
+      "descripción limpia del ítem, o null si no describe ninguno.");
+  private static final Field AMOUNT = Field.number("amount",
+      "monto TOTAL del ítem en dinero; si hay cálculos implícitos (\"2 unidades de 500\") es el total (1000); "
+          + "null si no hay monto.");
+
+  private final OllamaClient ollamaClient;
+  private final ObjectMapper objectMapper;
+  private volatile Map<ConversationState, List<Field>> schemas = buildSchemas(List.of());
+
+  public TurnInterpreter(OllamaClient ollamaClient, ObjectMapper objectMapper) {
+    this.ollamaClient = ollamaClient;
+    this.objectMapper = objectMapper;
+  }
+
+  public void rebuild(Collection<String> workTypes) {
+    schemas = buildSchemas(workTypes);
+  }
+
+  public boolean supports(ConversationState state) {
+    return schemas.containsKey(state);
+  }
+
+  public Map<String, Object> schemaFor(ConversationState state) {
+    List<Field> fields = schemas.get(state);
+    if (fields == null) {
+      return null;
+    }
+    Map<String, Object> properties = new LinkedHashMap<>();
+    List<String> required = new ArrayList<>();
+    for (Field field : fields) {
+      properties.put(field.name, field.jsonSchema());
+      required.add(field.name);
+    }
+    Map<String, Object> schema = new LinkedHashMap<>();
+    schema.put("type", "object");
+    schema.put("properties", properties);
+    schema.put("required", required);
+    return schema;
+  }
+
+  public TurnInterpretation interpret(ConversationState state, String message) {
+    List<Field> fields = schemas.get(state);
+    if (fields == null || message == null || message.isBlank()) {
+      return null;
+    }
+    if (TurnDeadline.exhausted()) {
+      log.debug("Turn budget exhausted, skipping turn interpretation");
+      return null;
+    }
+    try {
+      String response = ollamaClient.generate(OllamaTask.INTERPRET_TURN, buildSystem(state, fields),
+          "Mensaje del usuario: \"" + message + "\"", schemaFor(state));
+      if (response == null) {
+        return null;
+      }
+      return validate(fields, objectMapper.readTree(extractJson(response)));
+    } catch (Exception ex) {
+      log.warn("Turn interpretation failed for state {}: {}", state, ex.getMessage());
+      return null;
+    }
+  }
+
+  // Lo fijo por estado va como system: se evalúa una vez y solo el mensaje es texto nuevo
+  private String buildSystem(ConversationState state, List<Field> fields) {
+    StringBuilder system = new StringBuilder()
+        .append("Sos el intérprete de un asistente que arma cotizaciones de trabajos de instalación y mantenimiento.\n")
+        .append("Paso actual de la conversación: ").append(state.name()).append("\n\n")
+        .append("Responde ÚNICAMENTE con un objeto JSON válido con estos campos:\n");
+    for (Field field : fields) {
+      system.append("- \"").append(field.name).append("\": ").append(field.description).append("\n");
+    }
+    return system.toString();
+  }
+
+  // Una respuesta que no cumple el esquema se descarta entera: mejor el fallback que un campo inventado
+  private TurnInterpretation validate(List<Field> fields, JsonNode root) {
+    if (root == null || !root.isObject()) {
+      log.warn("Turn interpretation is not a JSON object");
+      return null;
+    }
+    Map<String, Object> values = new LinkedHashMap<>();
+    for (Field field : fields) {
+      JsonNode node = root.get(field.name);
+      if (node == null) {
+        log.warn("Turn interpretation missing field '{}'", field.name);
+        return null;
+      }
+      Object value = field.read(node);
+      if (value == Field.INVALID) {
+        log.warn("Turn interpretation field '{}' has invalid value: {}", field.name, node);
+        return null;
+      }
+      values.put(field.name, value);
+    }
+    String intent = (String) values.get(INTENT.name);
+    String workType = (String) values.get("work_type");
+    return new TurnInterpretation(
+        intent,
+        (Boolean) values.get(AFFIRMATIVE.name),
+        (Boolean) values.get(NEGATIVE.name),
+        (Boolean) values.get(FINISH.name),
+        (String) values.get(NAME.name),
+        UNKNOWN.equals(workType) ? null : workType,
+        (String) values.get(DESCRIPTION.name),
+        (Double) values.get(AMOUNT.name));
+  }
+
+  private String extractJson(String text) {
+    int start = text.indexOf('{');
+    int end = text.lastIndexOf('}');
+    if (start >= 0 && end > start) {
+      return text.substring(start, end + 1);
+    }
+    return text;
+  }
+
+  private static Map<ConversationState, List<Field>> buildSchemas(Collection<String> workTypes) {
+    Map<ConversationState, List<Field>> schemas = new EnumMap<>(ConversationState.class);
+    schemas.put(ConversationState.CAPTURA_TIPO_CLIENTE, List.of(INTENT));
+    schemas.put(ConversationState.CAPTURA_CLIENTE_EXISTENTE, List.of(NAME));
+    schemas.put(ConversationState.CAPTURA_CLIENTE_EXISTENTE_NOMBRE, List.of(NAME));
+    if (!workTypes.isEmpty()) {
+      List<String> options = new ArrayList<>(workTypes);
+      options.add(UNKNOWN);
+      schemas.put(ConversationState.CAPTURA_TRABAJO, List.of(Field.choice("work_type",
+          "el tipo de trabajo al que se refiere, copiado EXACTO de las opciones, o DESCONOCIDO si no coincide.",
+          options)));
+    }
+    List<Field> confirm = List.of(AFFIRMATIVE, NEGATIVE);
+    schemas.put(ConversationState.CAPTURA_MANO_OBRA, confirm);
+    schemas.put(ConversationState.CAPTURA_MATERIALES_CONFIRM, confirm);
+    schemas.put(ConversationState.CAPTURA_EQUIPOS_CONFIRM, confirm);
+    schemas.put(ConversationState.CAPTURA_EXTRAS_CONFIRM, confirm);
+    List<Field> item = List.of(FINISH, DESCRIPTION, AMOUNT);
+    schemas.put(ConversationState.CAPTURA_MATERIALES, item);
+    schemas.put(ConversationState.CAPTURA_EQUIPOS, item);
+    schemas.put(ConversationState.CAPTURA_EXTRAS, item);
+    return schemas;
+  }
+
+  private static final class Field {
+    private static final Object INVALID = new Object();
+
+    private final String name;
+    private final String type;
+    private final String description;
+    private final List<String> options;
+
+    private Field(String name, String type, String description, List<String> options) {
+      this.name = name;
+      this.type = type;
+      this.description = description;
+      this.options = options;
+    }
+
+    static Field flag(String name, String description) {
+      return new Field(name, "boolean", description, null);
+    }
+
+    static Field text(String name, String description) {
+      return new Field(name, "string", description, null);
+    }
+
+    static Field number(String name, String description) {
+      return new Field(name, "number", description, null);
+    }
+
+    static Field choice(String name, String description, List<String> options) {
+      return new Field(name, "string", description + " Opciones: " + String.join(", ", options), options);
+    }
+
+    Map<String, Object> jsonSchema() {
+      Map<String, Object> schema = new LinkedHashMap<>();
+      if (options != null) {
+        schema.put("type", "string");
+        schema.put("enum", options);
+      } else if ("boolean".equals(type)) {
+        schema.put("type", "boolean");
+      } else {
+        schema.put("type", List.of(type, "null"));
+      }
+      return schema;
+    }
+
+    Object read(JsonNode node) {
+      if (options != null) {
+        if (!node.isTextual()) {
+          return INVALID;
+        }
+        String value = node.asText().trim();
+        for (String option : options) {
+          if (option.equalsIgnoreCase(value)) {
+            return option;
+          }
+        }
+        return INVALID;
+      }
+      if ("boolean".equals(type)) {
+        return node.isBoolean() ? node.asBoolean() : INVALID;
+      }
+      if (node.isNull()) {
+        return null;
+      }
+      if ("number".equals(type)) {
+        return node.isNumber() ? node.asDouble() : INVALID;
+      }
+      if (!node.isTextual()) {
+        return INVALID;
+      }
+      String value = node.asText().trim();
+      return value.isEmpty() ? null : value;
+    }
+  }
+}
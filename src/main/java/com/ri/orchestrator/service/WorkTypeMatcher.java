@@ -0,0 +1,250 @@
+package com.ri.orchestrator.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class WorkTypeMatcher {
+  private static final Map<String, String> SYNONYMS = buildSynonyms();
+  private static final int MAX_SYNONYM_WORDS = SYNONYMS.keySet().stream()
+      .mapToInt(key -> key.split(" ").length)
+      .max()
+      .orElse(1);
+  private static final Set<String> STOPWORDS = Set.of(
+      "de", "del", "la", "el", "los", "las", "un", "una", "en", "para", "por", "y", "a", "al", "es", "que");
+
+  private final double minScore;
+  private final double minMargin;
+  private volatile List<Entry> index = List.of();
+
+  public WorkTypeMatcher(@Value("${assistant.work-type.min-score:0.85}") double minScore,
+                         @Value("${assistant.work-type.min-margin:0.15}") double minMargin) {
+    this.minScore = minScore;
+    this.minMargin = minMargin;
+  }
+
+  public void rebuild(Collection<String> options) {
+    List<Entry> entries = new ArrayList<>();
+    for (String option : options) {
+      List<String> tokens = tokenize(option);
+      if (!tokens.isEmpty()) {
+        entries.add(new Entry(option, tokens, trigrams(String.join(" ", tokens))));
+      }
+    }
+    index = List.copyOf(entries);
+  }
+
+  public Match match(String message) {
+    List<Entry> entries = index;
+    List<String> input = tokenize(message);
+    if (entries.isEmpty() || input.isEmpty()) {
+      return null;
+    }
+    Set<String> inputTrigrams = trigrams(String.join(" ", input));
+    Entry best = null;
+    double bestScore = 0;
+    double secondScore = 0;
+    for (Entry entry : entries) {
+      double score = score(entry, input, inputTrigrams);
+      if (score > bestScore) {
+        secondScore = bestScore;
+        bestScore = score;
+        best = entry;
+      } else if (score > secondScore) {
+        secondScore = score;
+      }
+    }
+    if (best == null) {
+      return null;
+    }
+    boolean confident = bestScore >= minScore && bestScore - secondScore >= minMargin;
+    return new Match(best.option, bestScore, confident);
+  }
+
+  private double score(Entry entry, List<String> input, Set<String> inputTrigrams) {
+    double coverage = 0;
+    for (String optionToken : entry.tokens) {
+      double tokenBest = 0;
+      for (String inputToken : input) {
+        tokenBest = Math.max(tokenBest, tokenSimilarity(optionToken, inputToken));
+        if (tokenBest == 1.0) {
+          break;
+        }
+      }
+      coverage += tokenBest;
+    }
+    coverage /= entry.tokens.size();
+    return 0.8 * coverage + 0.2 * jaccard(entry.trigrams, inputTrigrams);
+  }
+
+  private double tokenSimilarity(String a, String b) {
+    if (a.equals(b)) {
+      return 1.0;
+    }
+    int maxLength = Math.max(a.length(), b.length());
+    if (Math.min(a.length(), b.length()) < 4) {
+      return 0;
+    }
+    // Prefijos largos: "mantenim" o "electric"
+    if (a.startsWith(b) || b.startsWith(a)) {
+      return 0.9;
+    }
+    double edit = 1.0 - (double) levenshtein(a, b) / maxLength;
+    if (edit >= 0.75) {
+      return edit;
+    }
+    double trigram = jaccard(trigrams(a), trigrams(b));
+    return trigram >= 0.5 ? trigram * 0.8 : 0;
+  }
+
+  private static List<String> tokenize(String text) {
+    if (text == null) {
+      return List.of();
+    }
+    String lower = text.toLowerCase(Locale.ROOT).trim();
+    String normalized = Normalizer.normalize(lower, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+    normalized = normalized.replace("a/a", " aa ").replaceAll("[^a-z0-9 ]", " ").trim();
+    if (normalized.isEmpty()) {
+      return List.of();
+    }
+    String[] words = normalized.split("\\s+");
+    List<String> tokens = new ArrayList<>();
+    int i = 0;
+    while (i < words.length) {
+      // Sinónimos de varias palabras primero ("aire acondicionado", "no anda")
+      int consumed = 1;
+      String replacement = null;
+      for (int length = Math.min(MAX_SYNONYM_WORDS, words.length - i); length >= 1; length--) {
+        String phrase = String.join(" ", Arrays.copyOfRange(words, i, i + length));
+        replacement = SYNONYMS.get(phrase);
+        if (replacement != null) {
+          consumed = length;
+          break;
+        }
+      }
+      String emitted = replacement != null ? replacement : words[i];
+      for (String token : emitted.split(" ")) {
+        if (!STOPWORDS.contains(token) && !tokens.contains(token)) {
+          tokens.add(token);
+        }
+      }
+      i += consumed;
+    }
+    return tokens;
+  }
+
+  private static Set<String> trigrams(String text) {
+    Set<String> result = new HashSet<>();
+    String padded = "  " + text + " ";
+    for (int i = 0; i + 3 <= padded.length(); i++) {
+      result.add(padded.substring(i, i + 3));
+    }
+    return result;
+  }
+
+  private static double jaccard(Set<String> a, Set<String> b) {
+    if (a.isEmpty() || b.isEmpty()) {
+      return 0;
+    }
+    int intersection = 0;
+    for (String value : a) {
+      if (b.contains(value)) {
+        intersection++;
+      }
+    }
+    return (double) intersection / (a.size() + b.size() - intersection);
+  }
+
+  private static int levenshtein(String a, String b) {
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) {
+      previous[j] = j;
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      current[0] = i;
+      for (int j = 1; j <= b.length(); j++) {
+        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+      }
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[b.length()];
+  }
+
+  private static Map<String, String> buildSynonyms() {
+    Map<String, String> synonyms = new LinkedHashMap<>();
+    for (String key : List.of("aire acondicionado", "aires acondicionados", "aire", "aires", "split", "splits",
+        "ac", "acondicionado", "climatizacion")) {
+      synonyms.put(key, "aa");
+    }
+    for (String key : List.of("calefon", "calefones", "termotanque", "termotanques", "calefaccion", "calderas",
+        "caldera a gas")) {
+      synonyms.put(key, "caldera");
+    }
+    for (String key : List.of("instalar", "instalo", "instalamos", "colocar", "colocacion", "montaje", "montar",
+        "instalaciones")) {
+      synonyms.put(key, "instalacion");
+    }
+    for (String key : List.of("service", "servis", "limpieza", "limpiar", "mantener", "preventivo", "revision",
+        "control", "mantenimientos")) {
+      synonyms.put(key, "mantenimiento");
+    }
+    for (String key : List.of("arreglo", "arreglar", "reparar", "reparo", "falla", "roto", "rota", "no anda",
+        "no funciona", "reparaciones")) {
+      synonyms.put(key, "reparacion");
+    }
+    for (String key : List.of("plomero", "plomeria", "caneria", "canerias", "cano", "canos", "perdida de agua")) {
+      synonyms.put(key, "plomeria");
+    }
+    for (String key : List.of("electricista", "electrica", "electrico", "cableado", "tablero", "luz")) {
+      synonyms.put(key, "electricidad");
+    }
+    for (String key : List.of("herrero", "soldadura", "soldar", "rejas", "reja")) {
+      synonyms.put(key, "herreria");
+    }
+    for (String key : List.of("mecanico", "motor", "motores")) {
+      synonyms.put(key, "mecanica");
+    }
+    for (String key : List.of("autoelevador", "clark", "montacargas", "zorra electrica")) {
+      synonyms.put(key, "autoelevadores");
+    }
+    for (String key : List.of("automatizacion", "automatismo", "plc")) {
+      synonyms.put(key, "automatizaciones");
+    }
+    for (String key : List.of("cargador electrico", "cargador de auto", "cargador", "wallbox", "charge box")) {
+      synonyms.put(key, "chargebox");
+    }
+    for (String key : List.of("cabina", "pintura", "cabina pintura")) {
+      synonyms.put(key, "cabina pintura");
+    }
+    for (String key : List.of("neumatico", "neumaticos", "compresor", "aire comprimido")) {
+      synonyms.put(key, "neumatica");
+    }
+    for (String key : List.of("consulta", "asesoramiento", "asesoria", "consultoria")) {
+      synonyms.put(key, "consultoria");
+    }
+    for (String key : List.of("construccion", "albanileria", "albanil", "refaccion")) {
+      synonyms.put(key, "obra");
+    }
+    return synonyms;
+  }
+
+  public record Match(String option, double score, boolean confident) {
+  }
+
+  private record Entry(String option, List<String> tokens, Set<String> trigrams) {
+  }
+}